@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.iro"
@@ -13,18 +14,64 @@ repositories {
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// java.lang.foreign (the ffm move generator backend) is a preview API in JDK 21. FfmBoard and FfmMoveGen
+// are kept in their own source set so only they are compiled with --enable-preview, and only on JDK 21:
+// later javac rejects --release 21 --enable-preview, and the final API renamed what they use. main finds
+// them by name and falls back to the JNI backend when they aren't there
+val previewJvmArgs = listOf("--enable-preview", "--enable-native-access=ALL-UNNAMED")
+
+val ffm by sourceSets.creating {
+    compileClasspath += files(sourceSets.main.get().java.classesDirectory)
+}
+
+val compileFfmJava = tasks.named<JavaCompile>("compileFfmJava") {
+    options.release.set(21)
+    options.compilerArgs.add("--enable-preview")
+    onlyIf { JavaVersion.current() == JavaVersion.VERSION_21 }
+}
+
+// the ffm classes ship with main, in the jar and on the run, test and jmh classpaths
+sourceSets.main {
+    output.dir(mapOf("builtBy" to compileFfmJava), ffm.java.destinationDirectory)
 }
 
 application {
     mainClass.set("com.iro.Main")
-    applicationDefaultJvmArgs = listOf("-Djava.library.path=src/main/cpp/build")
+    applicationDefaultJvmArgs = listOf("-Djava.library.path=src/main/cpp/build") + previewJvmArgs
+}
+
+// precomputed slider attack tables, loaded at startup instead of being generated (see AttackTableSnapshot)
+val attackTablesFile = layout.buildDirectory.file("attack-tables/attack-tables.bin")
+
+val generateAttackTables by tasks.registering(JavaExec::class) {
+    group = "build"
+    description = "Writes the slider attack table snapshot loaded by Board at startup."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.iro.board.AttackTableSnapshot")
+    args(attackTablesFile.get().asFile.absolutePath)
+    outputs.file(attackTablesFile)
 }
 
 tasks.named<JavaExec>("run") {
+    dependsOn(generateAttackTables)
     standardInput = System.`in`
     jvmArgs("-Djava.library.path=src/main/cpp/build")
+    jvmArgs(previewJvmArgs)
+    systemProperty("iro.attackTables", attackTablesFile.get().asFile.absolutePath)
 }
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(previewJvmArgs)
+}
+
+// ./gradlew jmh — throughput plus allocation rate (gc profiler) for the move generators
+jmh {
+    jvmArgs.add("-Djava.library.path=${projectDir}/src/main/cpp/build")
+    jvmArgs.addAll(previewJvmArgs)
+    profilers.add("gc")
+    resultFormat.set("JSON")
 }
\ No newline at end of file
@@ -0,0 +1,262 @@
+package com.iro.board;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/*
+    MoveGenerator over the C++ generator through FfmMoveGen instead of JNI.
+
+    Every buffer a call needs (moves, FEN text, board snapshot, perft divide counts) is allocated once
+    per position in the board's arena and reused, so the generate/play/undo loop allocates nothing on
+    either side: the C++ side writes the legal moves straight into the move segment and they are
+    bulk-copied into the Moves array.
+
+    The arena is shared rather than confined because the GUI's position is created on the main
+    thread, in MoveGenerators.create, and then used on the event dispatch thread, and a confined
+    segment can only be touched by its owner.
+    Access to a shared segment costs the same, only closing it is more expensive.
+*/
+public class FfmBoard implements MoveGenerator {
+    // at least the 218 moves the C++ generator can write, same as Moves
+    private static final int MOVE_CAPACITY = 256;
+    private static final int FEN_CAPACITY = 128;
+
+    // C++ Piece enum → Java PieceEnum mapping, see NativeBoard
+    private static final PieceEnum[] CPP_TO_JAVA_PIECE = {
+        PieceEnum.P, PieceEnum.N, PieceEnum.B, PieceEnum.R, PieceEnum.Q, PieceEnum.K,
+        null, null,
+        PieceEnum.p, PieceEnum.n, PieceEnum.b, PieceEnum.r, PieceEnum.q, PieceEnum.k,
+        null
+    };
+
+    private Arena arena;
+    private MemorySegment position = MemorySegment.NULL;
+    private MemorySegment moveBuffer;
+    private MemorySegment fenBuffer;
+    private MemorySegment divideBuffer;
+    private MemorySegment mailboxBuffer;
+    private MemorySegment stateBuffer;
+
+    // state array reused by getBoard
+    private final long[] snapshotState = new long[BoardSnapshot.STATE_SIZE];
+
+    // scratch list reused by parseMove so engine replies don't allocate
+    private final Moves parseMoveList = new Moves();
+
+    @Override
+    public String getName() {
+        return "ffm";
+    }
+
+    @Override
+    public void createPosition() {
+        arena = Arena.ofShared();
+        moveBuffer = arena.allocateArray(JAVA_INT, MOVE_CAPACITY);
+        fenBuffer = arena.allocate(FEN_CAPACITY);
+        divideBuffer = arena.allocateArray(JAVA_LONG, MOVE_CAPACITY);
+        mailboxBuffer = arena.allocate(64);
+        stateBuffer = arena.allocateArray(JAVA_LONG, BoardSnapshot.STATE_SIZE);
+
+        try {
+            position = (MemorySegment) FfmMoveGen.CREATE_POSITION.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void destroyPosition() {
+        if (position.equals(MemorySegment.NULL)) {
+            return;
+        }
+
+        try {
+            FfmMoveGen.DESTROY_POSITION.invokeExact(position);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        position = MemorySegment.NULL;
+        arena.close();
+        arena = null;
+    }
+
+    @Override
+    public void setFen(String fen) {
+        if (fen.length() >= FEN_CAPACITY) {
+            throw new IllegalArgumentException("FEN longer than " + (FEN_CAPACITY - 1) + " characters: " + fen);
+        }
+
+        fenBuffer.setUtf8String(0, fen);
+
+        try {
+            FfmMoveGen.SET_FEN.invokeExact(position, fenBuffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getFen() {
+        int length;
+        try {
+            length = (int) FfmMoveGen.GET_FEN.invokeExact(position, fenBuffer, FEN_CAPACITY);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (length < 0) {
+            throw new IllegalStateException("FEN longer than " + (FEN_CAPACITY - 1) + " characters");
+        }
+
+        byte[] fen = new byte[length];
+        MemorySegment.copy(fenBuffer, JAVA_BYTE, 0, fen, 0, length);
+        return new String(fen, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public int getSide() {
+        try {
+            return (int) FfmMoveGen.GET_TURN.invokeExact(position);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void generateMoves(Moves moveList) {
+        int count;
+        try {
+            count = (int) FfmMoveGen.GENERATE_LEGAL_MOVES.invokeExact(position, moveBuffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        MemorySegment.copy(moveBuffer, JAVA_INT, 0, moveList.moves, 0, count);
+        moveList.count = count;
+    }
+
+    @Override
+    public void makeMove(int move) {
+        try {
+            FfmMoveGen.PLAY_MOVE.invokeExact(position, move);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void undoMove(int move) {
+        try {
+            FfmMoveGen.UNDO_MOVE.invokeExact(position, move);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the move text is copied into a per-call confined arena, it can be far longer than a FEN
+    @Override
+    public int playUciMoves(String moves) {
+        try (Arena call = Arena.ofConfined()) {
+            return (int) FfmMoveGen.PLAY_UCI_MOVES.invokeExact(position, call.allocateUtf8String(moves));
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int playMoves(int[] moves, int count) {
+        try (Arena call = Arena.ofConfined()) {
+            MemorySegment buffer = call.allocateArray(JAVA_INT, Math.max(count, 1));
+            MemorySegment.copy(moves, 0, buffer, JAVA_INT, 0, count);
+            return (int) FfmMoveGen.PLAY_MOVES.invokeExact(position, buffer, count);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long getHash() {
+        try {
+            return (long) FfmMoveGen.GET_HASH.invokeExact(position);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean isInCheck() {
+        try {
+            return (boolean) FfmMoveGen.IS_IN_CHECK.invokeExact(position);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean hasLegalMoves(Moves moveList) {
+        return moveList.count > 0;
+    }
+
+    @Override
+    public PieceEnum pieceAt(int square) {
+        int cppPiece;
+        try {
+            cppPiece = (int) FfmMoveGen.PIECE_AT.invokeExact(position, square);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (cppPiece < 0 || cppPiece >= CPP_TO_JAVA_PIECE.length) {
+            return null;
+        }
+        return CPP_TO_JAVA_PIECE[cppPiece];
+    }
+
+    @Override
+    public void getBoard(BoardSnapshot snapshot) {
+        try {
+            FfmMoveGen.GET_BOARD.invokeExact(position, mailboxBuffer, stateBuffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        MemorySegment.copy(mailboxBuffer, JAVA_BYTE, 0, snapshot.pieces, 0, 64);
+        MemorySegment.copy(stateBuffer, JAVA_LONG, 0, snapshotState, 0, BoardSnapshot.STATE_SIZE);
+        snapshot.setState(snapshotState);
+    }
+
+    @Override
+    public long perft(int depth) {
+        try {
+            return (long) FfmMoveGen.PERFT.invokeExact(position, depth);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long[] perftDivide(int depth) {
+        int count;
+        try {
+            count = (int) FfmMoveGen.PERFT_DIVIDE.invokeExact(position, depth, divideBuffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        long[] divide = new long[count];
+        MemorySegment.copy(divideBuffer, JAVA_LONG, 0, divide, 0, count);
+        return divide;
+    }
+
+    @Override
+    public int parseMove(String uci) {
+        generateMoves(parseMoveList);
+        return Moves.fromUci(parseMoveList, uci);
+    }
+}
@@ -0,0 +1,124 @@
+package com.iro.board;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BOOLEAN;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/*
+    Foreign Function & Memory binding to the plain C entry points in iro_chess_movegen_ffi.cpp, the
+    alternative to the JNI binding in NativeMoveGen.
+
+    The calls made once per node or per redraw (generate, play, undo, getBoard and the small getters)
+    are linked as trivial: they never call back into Java and return quickly, so the JVM skips the
+    thread state transition a regular native call makes. Perft, batched replay, FEN parsing and
+    position lifecycle are regular calls, they can run long enough to hold up a safepoint.
+
+    java.lang.foreign is a preview API in JDK 21, so this class only loads on a JVM started with
+    --enable-preview. MoveGenerators checks that before choosing it.
+*/
+public final class FfmMoveGen {
+    private FfmMoveGen() {}
+
+    static final MethodHandle CREATE_POSITION;
+    static final MethodHandle DESTROY_POSITION;
+    static final MethodHandle SET_FEN;
+    static final MethodHandle GET_FEN;
+    static final MethodHandle GET_TURN;
+    static final MethodHandle PIECE_AT;
+    static final MethodHandle GET_BOARD;
+    static final MethodHandle GENERATE_LEGAL_MOVES;
+    static final MethodHandle PLAY_MOVE;
+    static final MethodHandle UNDO_MOVE;
+    static final MethodHandle PLAY_UCI_MOVES;
+    static final MethodHandle PLAY_MOVES;
+    static final MethodHandle IS_IN_CHECK;
+    static final MethodHandle GET_HASH;
+    static final MethodHandle PERFT;
+    static final MethodHandle PERFT_DIVIDE;
+
+    // why the library or one of its symbols couldn't be found, null when the binding is usable
+    private static final Throwable LOAD_ERROR;
+
+    static {
+        MethodHandle[] handles = new MethodHandle[16];
+        Throwable error = null;
+
+        try {
+            System.loadLibrary("iro_chess_movegen");
+
+            Linker linker = Linker.nativeLinker();
+            SymbolLookup lookup = SymbolLookup.loaderLookup();
+            Linker.Option trivial = Linker.Option.isTrivial();
+
+            handles[0] = downcall(linker, lookup, "iro_create_position", FunctionDescriptor.of(ADDRESS));
+            handles[1] = downcall(linker, lookup, "iro_destroy_position", FunctionDescriptor.ofVoid(ADDRESS));
+            handles[2] = downcall(linker, lookup, "iro_set_fen", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
+            handles[3] = downcall(linker, lookup, "iro_get_fen",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+            handles[4] = downcall(linker, lookup, "iro_get_turn", FunctionDescriptor.of(JAVA_INT, ADDRESS), trivial);
+            handles[5] = downcall(linker, lookup, "iro_piece_at",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT), trivial);
+            handles[6] = downcall(linker, lookup, "iro_generate_legal_moves",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS), trivial);
+            handles[7] = downcall(linker, lookup, "iro_play_move",
+                FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT), trivial);
+            handles[8] = downcall(linker, lookup, "iro_undo_move",
+                FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT), trivial);
+            handles[9] = downcall(linker, lookup, "iro_is_in_check",
+                FunctionDescriptor.of(JAVA_BOOLEAN, ADDRESS), trivial);
+            handles[10] = downcall(linker, lookup, "iro_get_hash", FunctionDescriptor.of(JAVA_LONG, ADDRESS), trivial);
+            handles[11] = downcall(linker, lookup, "iro_perft", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT));
+            handles[12] = downcall(linker, lookup, "iro_perft_divide",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+            handles[13] = downcall(linker, lookup, "iro_get_board",
+                FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS), trivial);
+            handles[14] = downcall(linker, lookup, "iro_play_uci_moves",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+            handles[15] = downcall(linker, lookup, "iro_play_moves",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+        } catch (UnsatisfiedLinkError | SecurityException | IllegalArgumentException |
+                 IllegalCallerException e) {
+            error = e;
+        }
+
+        CREATE_POSITION = handles[0];
+        DESTROY_POSITION = handles[1];
+        SET_FEN = handles[2];
+        GET_FEN = handles[3];
+        GET_TURN = handles[4];
+        PIECE_AT = handles[5];
+        GENERATE_LEGAL_MOVES = handles[6];
+        PLAY_MOVE = handles[7];
+        UNDO_MOVE = handles[8];
+        IS_IN_CHECK = handles[9];
+        GET_HASH = handles[10];
+        PERFT = handles[11];
+        PERFT_DIVIDE = handles[12];
+        GET_BOARD = handles[13];
+        PLAY_UCI_MOVES = handles[14];
+        PLAY_MOVES = handles[15];
+        LOAD_ERROR = error;
+    }
+
+    public static boolean isLoaded() {
+        return LOAD_ERROR == null;
+    }
+
+    public static String getLoadError() {
+        return LOAD_ERROR == null ? null : LOAD_ERROR.getMessage();
+    }
+
+    private static MethodHandle downcall(Linker linker, SymbolLookup lookup, String name,
+                                         FunctionDescriptor descriptor, Linker.Option... options) {
+        MemorySegment symbol = lookup.find(name)
+            .orElseThrow(() -> new UnsatisfiedLinkError("missing symbol " + name));
+        return linker.downcallHandle(symbol, descriptor, options);
+    }
+}
@@ -0,0 +1,33 @@
+package com.iro.board;
+
+// standard perft positions shared by the benchmarks, selected through a @Param name
+public final class BenchmarkPositions {
+    private BenchmarkPositions() {}
+
+    public static final String START = Board.START_POSITION;
+
+    public static final String KIWIPETE = Perft.KIWIPETE;
+
+    // rook and pawn endgame (perft position 3)
+    public static final String ENDGAME =
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1 ";
+
+    // knights and pawns, promotions and underpromotions for both sides
+    public static final String PROMOTIONS =
+        "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1 ";
+
+    public static String fen(String name) {
+        switch (name) {
+            case "start":
+                return START;
+            case "kiwipete":
+                return KIWIPETE;
+            case "endgame":
+                return ENDGAME;
+            case "promotions":
+                return PROMOTIONS;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark position: " + name);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.iro.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({"start", "kiwipete", "endgame", "promotions"})
+    public String position;
+
+    private String fen;
+    private Board board;
+    private Moves moveList;
+    private Moves rootMoves;
+
+    @Setup
+    public void setup() {
+        fen = BenchmarkPositions.fen(position);
+
+        board = new Board();
+        board.parseFen(fen);
+
+        moveList = new Moves();
+        rootMoves = new Moves();
+        board.generateMoves(rootMoves);
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        board.generateMoves(moveList);
+        return moveList.count;
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        board.generateLegalMoves(moveList);
+        return moveList.count;
+    }
+
+    // makes and takes back every pseudo-legal move of the position
+    @Benchmark
+    public int makeMoveTakeBack() {
+        int legal = 0;
+
+        for (int i = 0; i < rootMoves.count; i++) {
+            BoardState saved = board.copyBoard();
+
+            if (board.makeMove(rootMoves.moves[i], MoveTypeEnum.ALL_MOVES)) {
+                legal++;
+            }
+
+            board.takeBack(saved);
+        }
+
+        return legal;
+    }
+
+    @Benchmark
+    public int parseFen() {
+        board.parseFen(fen);
+        return board.getSide();
+    }
+}
@@ -0,0 +1,102 @@
+package com.iro.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// the same calls into the C++ generator through JNI (NativeBoard) and through FFM (FfmBoard)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBindingBenchmark {
+
+    @Param({"native", "ffm"})
+    public String binding;
+
+    @Param({"start", "kiwipete"})
+    public String position;
+
+    private MoveGenerator board;
+    private Moves[] moveLists;
+    private Moves rootMoves;
+
+    @Setup
+    public void setup() {
+        board = binding.equals("ffm") ? MoveGenerators.newFfmBoard() : new NativeBoard();
+        board.createPosition();
+        board.setFen(BenchmarkPositions.fen(position));
+
+        moveLists = new Moves[3];
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new Moves();
+        }
+
+        rootMoves = new Moves();
+        board.generateMoves(rootMoves);
+    }
+
+    @TearDown
+    public void tearDown() {
+        board.destroyPosition();
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        board.generateMoves(moveLists[0]);
+        return moveLists[0].count;
+    }
+
+    @Benchmark
+    public int makeMoveUndoMove() {
+        for (int i = 0; i < rootMoves.count; i++) {
+            board.makeMove(rootMoves.moves[i]);
+            board.undoMove(rootMoves.moves[i]);
+        }
+
+        return rootMoves.count;
+    }
+
+    @Benchmark
+    public int roundTrip() {
+        return board.getSide();
+    }
+
+    // generate/play/undo two plies deep from Java, one crossing per call, the way the GUI drives a backend
+    @Benchmark
+    public long walk() {
+        return walk(2);
+    }
+
+    private long walk(int depth) {
+        Moves moveList = moveLists[depth];
+        board.generateMoves(moveList);
+
+        if (depth == 1) {
+            return moveList.count;
+        }
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i]);
+            nodes += walk(depth - 1);
+            board.undoMove(moveList.moves[i]);
+        }
+
+        return nodes;
+    }
+}
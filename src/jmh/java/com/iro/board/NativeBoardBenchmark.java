@@ -0,0 +1,93 @@
+package com.iro.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBoardBenchmark {
+
+    @Param({"start", "kiwipete", "endgame", "promotions"})
+    public String position;
+
+    private NativeBoard board;
+    private Moves moveList;
+    private Moves rootMoves;
+    private BoardSnapshot snapshot;
+
+    @Setup
+    public void setup() {
+        board = new NativeBoard();
+        board.createPosition();
+        board.setFen(BenchmarkPositions.fen(position));
+
+        moveList = new Moves();
+        rootMoves = new Moves();
+        board.generateMoves(rootMoves);
+        snapshot = new BoardSnapshot();
+    }
+
+    @TearDown
+    public void tearDown() {
+        board.destroyPosition();
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        board.generateMoves(moveList);
+        return moveList.count;
+    }
+
+    // plays and undoes every legal move of the position, two JNI crossings per move
+    @Benchmark
+    public int makeMoveUndoMove() {
+        for (int i = 0; i < rootMoves.count; i++) {
+            board.makeMove(rootMoves.moves[i]);
+            board.undoMove(rootMoves.moves[i]);
+        }
+
+        return rootMoves.count;
+    }
+
+    // reading the whole board square by square, 64 JNI crossings
+    @Benchmark
+    public int pieceAtEverySquare() {
+        int pieces = 0;
+        for (int square = 0; square < 64; square++) {
+            if (board.pieceAt(square) != null) {
+                pieces++;
+            }
+        }
+
+        return pieces;
+    }
+
+    // reading the whole board plus side, castling, en passant and hash in one JNI crossing
+    @Benchmark
+    public long getBoard() {
+        board.getBoard(snapshot);
+        return snapshot.hash;
+    }
+
+    // the cheapest call into the library, to measure the cost of a JNI crossing on its own
+    @Benchmark
+    public int jniRoundTrip() {
+        return board.getSide();
+    }
+}
@@ -0,0 +1,110 @@
+package com.iro.board;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// perft on the Java Board, the "nodes" counter in the results is nodes per second
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param({"start", "kiwipete", "endgame", "promotions"})
+    public String position;
+
+    @Param({"3"})
+    public int depth;
+
+    private Board board;
+    private Moves[] moveLists;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class NodeCounter {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() {
+        board = new Board();
+        board.parseFen(BenchmarkPositions.fen(position));
+
+        moveLists = new Moves[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            moveLists[i] = new Moves();
+        }
+    }
+
+    // pseudo-legal generation, every move is made to find out whether it is legal
+    @Benchmark
+    public long perft(NodeCounter counter) {
+        long nodes = perft(depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+
+    // strictly legal generation, the last ply is counted straight from the move list
+    @Benchmark
+    public long perftLegal(NodeCounter counter) {
+        long nodes = perftLegal(depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+
+    private long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        Moves moveList = moveLists[depth];
+        board.generateMoves(moveList);
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            if (!board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES)) {
+                continue;
+            }
+
+            nodes += perft(depth - 1);
+
+            board.unmakeMove(moveList.moves[i]);
+        }
+
+        return nodes;
+    }
+
+    private long perftLegal(int depth) {
+        Moves moveList = moveLists[depth];
+        board.generateLegalMoves(moveList);
+
+        if (depth <= 1) {
+            return depth == 0 ? 1 : moveList.count;
+        }
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+            nodes += perftLegal(depth - 1);
+            board.unmakeMove(moveList.moves[i]);
+        }
+
+        return nodes;
+    }
+}
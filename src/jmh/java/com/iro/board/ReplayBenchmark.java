@@ -0,0 +1,106 @@
+package com.iro.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// importing one game: a move at a time through parseMove/makeMove against one batched replay call
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+    private static final int GAME_PLIES = 200;
+
+    @Param({"native", "ffm", "java"})
+    public String binding;
+
+    private MoveGenerator board;
+    private String[] uciMoves;
+    private String uciGame;
+    private int[] moves;
+
+    @Setup
+    public void setup() {
+        board = switch (binding) {
+            case "ffm" -> MoveGenerators.newFfmBoard();
+            case "java" -> new JavaBoard();
+            default -> new NativeBoard();
+        };
+        board.createPosition();
+
+        recordGame();
+    }
+
+    @TearDown
+    public void tearDown() {
+        board.destroyPosition();
+    }
+
+    @Benchmark
+    public int parseAndPlay() {
+        board.setFen(MoveGenerator.START_POSITION);
+
+        for (String uci : uciMoves) {
+            board.makeMove(board.parseMove(uci));
+        }
+
+        return board.getSide();
+    }
+
+    @Benchmark
+    public int playUciMoves() {
+        board.setFen(MoveGenerator.START_POSITION);
+        return board.playUciMoves(uciGame);
+    }
+
+    @Benchmark
+    public int playMoves() {
+        board.setFen(MoveGenerator.START_POSITION);
+        return board.playMoves(moves, moves.length);
+    }
+
+    // a fixed pseudo-random game, so every binding replays the same moves
+    private void recordGame() {
+        MoveGenerator recorder = new JavaBoard();
+        recorder.setFen(MoveGenerator.START_POSITION);
+
+        Random random = new Random(42);
+        Moves moveList = new Moves();
+        int[] played = new int[GAME_PLIES];
+        int count = 0;
+
+        while (count < GAME_PLIES) {
+            recorder.generateMoves(moveList);
+            if (moveList.count == 0) {
+                break;
+            }
+
+            played[count] = moveList.moves[random.nextInt(moveList.count)];
+            recorder.makeMove(played[count]);
+            count++;
+        }
+
+        moves = Arrays.copyOf(played, count);
+        uciMoves = new String[count];
+        for (int i = 0; i < count; i++) {
+            uciMoves[i] = Moves.toUci(moves[i]);
+        }
+        uciGame = String.join(" ", uciMoves);
+    }
+}
@@ -0,0 +1,32 @@
+#ifndef BOARD_SNAPSHOT_H
+#define BOARD_SNAPSHOT_H
+
+#include "position.h"
+#include <cstdint>
+
+//Layout of the state array filled next to the mailbox, shared with com.iro.board.BoardSnapshot
+enum SnapshotState : int {
+    SNAPSHOT_SIDE,
+    SNAPSHOT_CASTLING,
+    SNAPSHOT_EPSQ,
+    SNAPSHOT_HASH,
+    SNAPSHOT_STATE_SIZE
+};
+
+//Copies the whole position out in one go: the 64 squares as Java PieceEnum ordinals (P..K = 0..5,
+//p..k = 6..11, -1 for an empty square) plus the side to play, castling rights, en passant square
+//(64 when there is none) and hash
+inline void write_snapshot(const Position& p, int8_t* mailbox, int64_t* state) {
+    for (int sq = 0; sq < NSQUARES; sq++) {
+        Piece pc = p.at(Square(sq));
+        //Black pieces start at 8 in the C++ enum and right after the white king in Java
+        mailbox[sq] = pc == NO_PIECE ? -1 : int8_t(pc < 8 ? pc : pc - 2);
+    }
+
+    state[SNAPSHOT_SIDE] = p.turn();
+    state[SNAPSHOT_CASTLING] = p.castling_rights();
+    state[SNAPSHOT_EPSQ] = p.ep_square();
+    state[SNAPSHOT_HASH] = int64_t(p.get_hash());
+}
+
+#endif // BOARD_SNAPSHOT_H
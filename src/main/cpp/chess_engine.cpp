@@ -2,32 +2,9 @@
 #include <chrono>
 #include "tables.h"
 #include "position.h"
+#include "perft.h"
 #include "types.h"
 
-//Computes the perft of the position for a given depth, using bulk-counting
-//According to the https://www.chessprogramming.org/Perft site:
-//Perft is a debugging function to walk the move generation tree of strictly legal moves to count 
-//all the leaf nodes of a certain depth, which can be compared to predetermined values and used to isolate bugs
-template<Color Us>
-unsigned long long perft(Position& p, unsigned int depth) {
-    int nmoves;
-    unsigned long long nodes = 0;
-
-    MoveList<Us> list(p);
-
-    if (depth == 1) {
-        return (unsigned long long) list.size();
-    }
-
-    for (Move move : list) {
-        p.play<Us>(move);
-        nodes += perft<color_invert(Us)>(p, depth - 1);
-        p.undo<Us>(move);
-    }
-
-    return nodes;
-}
-
 //A variant of perft, listing all moves and for each move, the perft of the decremented depth
 //It is used solely for debugging
 template<Color Us>
@@ -0,0 +1,162 @@
+#include "position.h"
+#include "perft.h"
+#include "library_init.h"
+#include "board_snapshot.h"
+#include "replay.h"
+#include <cstdint>
+#include <cstring>
+#include <string>
+
+//Plain C entry points for the Java Foreign Function & Memory binding (FfmMoveGen). They mirror the JNI
+//functions, but take raw pointers instead of JNI handles: strings are NUL-terminated UTF-8 and move
+//lists are written straight into memory owned by the caller, so nothing is copied through the JVM
+
+#if defined(_WIN32)
+#define IRO_EXPORT __declspec(dllexport)
+#else
+#define IRO_EXPORT __attribute__((visibility("default")))
+#endif
+
+extern "C" {
+
+// Position lifecycle
+
+IRO_EXPORT Position* iro_create_position() {
+    ensure_init();
+    return new Position();
+}
+
+IRO_EXPORT void iro_destroy_position(Position* pos) {
+    delete pos;
+}
+
+// State
+
+IRO_EXPORT void iro_set_fen(Position* pos, const char* fen) {
+    Position::set(std::string(fen), *pos);
+}
+
+//Writes the FEN into out as a NUL-terminated string and returns its length, or -1 when it doesn't fit
+IRO_EXPORT int32_t iro_get_fen(Position* pos, char* out, int32_t capacity) {
+    std::string fen = pos->fen();
+    if (static_cast<int32_t>(fen.size()) >= capacity) {
+        return -1;
+    }
+
+    std::memcpy(out, fen.c_str(), fen.size() + 1);
+    return static_cast<int32_t>(fen.size());
+}
+
+// Returns side to play: 0 = WHITE, 1 = BLACK
+IRO_EXPORT int32_t iro_get_turn(Position* pos) {
+    return static_cast<int32_t>(pos->turn());
+}
+
+// Returns piece at square (C++ Piece enum values, 14 = NO_PIECE)
+IRO_EXPORT int32_t iro_piece_at(Position* pos, int32_t square) {
+    return static_cast<int32_t>(pos->at(static_cast<Square>(square)));
+}
+
+// Fills a 64-byte mailbox and 4-long state block owned by the caller (see board_snapshot.h)
+IRO_EXPORT void iro_get_board(Position* pos, int8_t* mailbox, int64_t* state) {
+    write_snapshot(*pos, mailbox, state);
+}
+
+// Move generation — same encoding and capacity rules as the JNI generateLegalMoves
+IRO_EXPORT int32_t iro_generate_legal_moves(Position* pos, int32_t* out) {
+    Move moves[218];
+    Move *end;
+
+    if (pos->turn() == WHITE) {
+        end = pos->generate_legals<WHITE>(moves);
+    } else {
+        end = pos->generate_legals<BLACK>(moves);
+    }
+
+    int32_t count = static_cast<int32_t>(end - moves);
+    for (int32_t i = 0; i < count; i++) {
+        out[i] = static_cast<int32_t>(moves[i].to_from());
+    }
+
+    return count;
+}
+
+IRO_EXPORT void iro_play_move(Position* pos, int32_t move) {
+    Move m(static_cast<uint16_t>(move));
+
+    if (pos->turn() == WHITE) {
+        pos->play<WHITE>(m);
+    } else {
+        pos->play<BLACK>(m);
+    }
+}
+
+IRO_EXPORT void iro_undo_move(Position* pos, int32_t move) {
+    Move m(static_cast<uint16_t>(move));
+
+    // After play, turn has flipped — undo with the opposite of current turn
+    if (pos->turn() == WHITE) {
+        pos->undo<BLACK>(m);
+    } else {
+        pos->undo<WHITE>(m);
+    }
+}
+
+// Batched replay, see replay.h
+IRO_EXPORT int32_t iro_play_uci_moves(Position* pos, const char* moves) {
+    return play_uci_moves(*pos, moves);
+}
+
+IRO_EXPORT int32_t iro_play_moves(Position* pos, const int32_t* moves, int32_t count) {
+    return play_moves(*pos, moves, count);
+}
+
+IRO_EXPORT bool iro_is_in_check(Position* pos) {
+    if (pos->turn() == WHITE) {
+        return pos->in_check<WHITE>();
+    } else {
+        return pos->in_check<BLACK>();
+    }
+}
+
+IRO_EXPORT uint64_t iro_get_hash(Position* pos) {
+    return pos->get_hash();
+}
+
+// Perft
+
+IRO_EXPORT uint64_t iro_perft(Position* pos, int32_t depth) {
+    if (depth < 0) {
+        return 0;
+    }
+
+    if (pos->turn() == WHITE) {
+        return perft<WHITE>(*pos, depth);
+    } else {
+        return perft<BLACK>(*pos, depth);
+    }
+}
+
+//Writes the node count of each root move into out (at least 218 entries) and returns the number of root moves
+IRO_EXPORT int32_t iro_perft_divide(Position* pos, int32_t depth, uint64_t* out) {
+    if (depth < 1) {
+        return 0;
+    }
+
+    unsigned long long counts[218];
+    int count;
+
+    if (pos->turn() == WHITE) {
+        count = perft_divide<WHITE>(*pos, depth, counts);
+    } else {
+        count = perft_divide<BLACK>(*pos, depth, counts);
+    }
+
+    for (int i = 0; i < count; i++) {
+        out[i] = static_cast<uint64_t>(counts[i]);
+    }
+
+    return static_cast<int32_t>(count);
+}
+
+} // extern "C"
@@ -1,18 +1,11 @@
 #include <jni.h>
 #include "position.h"
-#include "tables.h"
+#include "perft.h"
+#include "library_init.h"
+#include "board_snapshot.h"
+#include "replay.h"
 #include <string>
 
-static bool initialized = false;
-
-static void ensure_init() {
-    if (!initialized) {
-        initialise_all_databases();
-        zobrist::initialise_zobrist_keys();
-        initialized = true;
-    }
-}
-
 extern "C" {
 
 // Position lifecycle
@@ -30,6 +23,22 @@ JNIEXPORT void JNICALL Java_com_iro_board_NativeMoveGen_destroyPosition(
     delete reinterpret_cast<Position*>(handle);
 }
 
+// Returns a new position holding a copy of the given one, undo history included
+JNIEXPORT jlong JNICALL Java_com_iro_board_NativeMoveGen_clonePosition(
+    JNIEnv *env, jclass cls, jlong handle)
+{
+    Position *copy = new Position();
+    Position::copy(*reinterpret_cast<Position*>(handle), *copy);
+    return reinterpret_cast<jlong>(copy);
+}
+
+// Overwrites an existing position with a copy of another one, no allocation
+JNIEXPORT void JNICALL Java_com_iro_board_NativeMoveGen_copyPosition(
+    JNIEnv *env, jclass cls, jlong source, jlong target)
+{
+    Position::copy(*reinterpret_cast<Position*>(source), *reinterpret_cast<Position*>(target));
+}
+
 // State
 
 JNIEXPORT void JNICALL Java_com_iro_board_NativeMoveGen_setFen(
@@ -64,10 +73,26 @@ JNIEXPORT jint JNICALL Java_com_iro_board_NativeMoveGen_pieceAt(
     return static_cast<jint>(pos->at(static_cast<Square>(square)));
 }
 
-// Move generation — returns raw move uint16_t values as int[]
+// Copies the whole board into the caller's byte[64] mailbox and long[4] state (see board_snapshot.h)
+// in one crossing instead of 64 pieceAt calls
+JNIEXPORT void JNICALL Java_com_iro_board_NativeMoveGen_getBoard(
+    JNIEnv *env, jclass cls, jlong handle, jbyteArray mailbox, jlongArray state)
+{
+    Position *pos = reinterpret_cast<Position*>(handle);
+
+    jbyte squares[NSQUARES];
+    jlong values[SNAPSHOT_STATE_SIZE];
+    write_snapshot(*pos, reinterpret_cast<int8_t*>(squares), reinterpret_cast<int64_t*>(values));
+
+    env->SetByteArrayRegion(mailbox, 0, NSQUARES, squares);
+    env->SetLongArrayRegion(state, 0, SNAPSHOT_STATE_SIZE, values);
+}
+
+// Move generation — writes raw move uint16_t values into the caller's int[] and returns the count
 // Each move encodes: flags[15:12] | from[11:6] | to[5:0]
-JNIEXPORT jintArray JNICALL Java_com_iro_board_NativeMoveGen_generateLegalMoves(
-    JNIEnv *env, jclass cls, jlong handle)
+// The array must hold at least 218 entries (the maximum number of legal moves)
+JNIEXPORT jint JNICALL Java_com_iro_board_NativeMoveGen_generateLegalMoves(
+    JNIEnv *env, jclass cls, jlong handle, jintArray out)
 {
     Position *pos = reinterpret_cast<Position*>(handle);
 
@@ -81,14 +106,13 @@ JNIEXPORT jintArray JNICALL Java_com_iro_board_NativeMoveGen_generateLegalMoves(
     }
 
     int count = static_cast<int>(end - moves);
-    jintArray result = env->NewIntArray(count);
     jint buf[218];
     for (int i = 0; i < count; i++) {
         buf[i] = static_cast<jint>(moves[i].to_from());
     }
 
-    env->SetIntArrayRegion(result, 0, count, buf);
-    return result;
+    env->SetIntArrayRegion(out, 0, count, buf);
+    return count;
 }
 
 // Play a move (pass the raw uint16_t move value)
@@ -120,6 +144,31 @@ JNIEXPORT void JNICALL Java_com_iro_board_NativeMoveGen_undoMove(
     }
 }
 
+// Replays whitespace-separated UCI moves in one crossing, returns the index of the first illegal move
+// (everything before it is played) or -1 when all of them were played
+JNIEXPORT jint JNICALL Java_com_iro_board_NativeMoveGen_playUciMoves(
+    JNIEnv *env, jclass cls, jlong handle, jstring moves)
+{
+    Position *pos = reinterpret_cast<Position*>(handle);
+    const char *moves_cstr = env->GetStringUTFChars(moves, nullptr);
+    int result = play_uci_moves(*pos, moves_cstr);
+    env->ReleaseStringUTFChars(moves, moves_cstr);
+    return static_cast<jint>(result);
+}
+
+// Replays the first count raw moves of the array, same result as playUciMoves
+JNIEXPORT jint JNICALL Java_com_iro_board_NativeMoveGen_playMoves(
+    JNIEnv *env, jclass cls, jlong handle, jintArray moves, jint count)
+{
+    Position *pos = reinterpret_cast<Position*>(handle);
+
+    // pinned or copied by the VM; nothing is written back, so JNI_ABORT skips the copy-back
+    jint *elements = env->GetIntArrayElements(moves, nullptr);
+    int result = play_moves(*pos, reinterpret_cast<const int32_t*>(elements), count);
+    env->ReleaseIntArrayElements(moves, elements, JNI_ABORT);
+    return static_cast<jint>(result);
+}
+
 // Check if current side is in check
 JNIEXPORT jboolean JNICALL Java_com_iro_board_NativeMoveGen_isInCheck(
     JNIEnv *env, jclass cls, jlong handle)
@@ -148,4 +197,48 @@ JNIEXPORT jint JNICALL Java_com_iro_board_NativeMoveGen_getPly(
     return static_cast<jint>(pos->ply());
 }
 
+// Perft — counts the leaf nodes at the given depth entirely in native code
+JNIEXPORT jlong JNICALL Java_com_iro_board_NativeMoveGen_perft(
+    JNIEnv *env, jclass cls, jlong handle, jint depth)
+{
+    Position *pos = reinterpret_cast<Position*>(handle);
+
+    if (depth < 0) {
+        return 0;
+    }
+
+    if (pos->turn() == WHITE) {
+        return static_cast<jlong>(perft<WHITE>(*pos, depth));
+    } else {
+        return static_cast<jlong>(perft<BLACK>(*pos, depth));
+    }
+}
+
+// Perft divide — returns the node count of each root move, in generateLegalMoves order
+JNIEXPORT jlongArray JNICALL Java_com_iro_board_NativeMoveGen_perftDivide(
+    JNIEnv *env, jclass cls, jlong handle, jint depth)
+{
+    Position *pos = reinterpret_cast<Position*>(handle);
+
+    unsigned long long counts[218];
+    int count = 0;
+
+    if (depth >= 1) {
+        if (pos->turn() == WHITE) {
+            count = perft_divide<WHITE>(*pos, depth, counts);
+        } else {
+            count = perft_divide<BLACK>(*pos, depth, counts);
+        }
+    }
+
+    jlongArray result = env->NewLongArray(count);
+    jlong buf[218];
+    for (int i = 0; i < count; i++) {
+        buf[i] = static_cast<jlong>(counts[i]);
+    }
+
+    env->SetLongArrayRegion(result, 0, count, buf);
+    return result;
+}
+
 } // extern "C"
@@ -0,0 +1,19 @@
+#ifndef LIBRARY_INIT_H
+#define LIBRARY_INIT_H
+
+#include "position.h"
+#include "tables.h"
+
+//Builds the attack tables and zobrist keys the first time a position is created. Shared by the JNI
+//and the plain C entry points; the function-local static makes it run exactly once, even when two
+//threads create their first position at the same time
+inline void ensure_init() {
+    static const bool initialized = [] {
+        initialise_all_databases();
+        zobrist::initialise_zobrist_keys();
+        return true;
+    }();
+    (void) initialized;
+}
+
+#endif // LIBRARY_INIT_H
@@ -0,0 +1,51 @@
+#ifndef PERFT_H
+#define PERFT_H
+
+#include "position.h"
+#include "types.h"
+
+//Computes the perft of the position for a given depth, using bulk-counting
+//According to the https://www.chessprogramming.org/Perft site:
+//Perft is a debugging function to walk the move generation tree of strictly legal moves to count 
+//all the leaf nodes of a certain depth, which can be compared to predetermined values and used to isolate bugs
+template<Color Us>
+unsigned long long perft(Position& p, unsigned int depth) {
+    unsigned long long nodes = 0;
+
+    //A depth of zero is the position itself
+    if (depth == 0) {
+        return 1;
+    }
+
+    MoveList<Us> list(p);
+
+    if (depth == 1) {
+        return (unsigned long long) list.size();
+    }
+
+    for (Move move : list) {
+        p.play<Us>(move);
+        nodes += perft<color_invert(Us)>(p, depth - 1);
+        p.undo<Us>(move);
+    }
+
+    return nodes;
+}
+
+//Computes the perft of each root move for a given depth (at least 1). The counts are written to <out> in
+//the same order as generate_legals() produces the moves, and the number of root moves is returned
+template<Color Us>
+int perft_divide(Position& p, unsigned int depth, unsigned long long* out) {
+    MoveList<Us> list(p);
+    int n = 0;
+
+    for (Move move : list) {
+        p.play<Us>(move);
+        out[n++] = perft<color_invert(Us)>(p, depth - 1);
+        p.undo<Us>(move);
+    }
+
+    return n;
+}
+
+#endif // PERFT_H
@@ -5,6 +5,12 @@
 //Used to incrementally update the hash key of a position
 uint64_t zobrist::zobrist_table[NPIECES][NSQUARES];
 
+//Zobrist keys for black to play, each combination of castling rights and each en passant square
+//(the NO_SQUARE entry is left at zero)
+uint64_t zobrist::zobrist_side;
+uint64_t zobrist::zobrist_castling[16];
+uint64_t zobrist::zobrist_epsq[NSQUARES + 1];
+
 //Initializes the zobrist table with random 64-bit numbers
 void zobrist::initialise_zobrist_keys() {
     PRNG rng(70026072);
@@ -13,6 +19,15 @@ void zobrist::initialise_zobrist_keys() {
             zobrist::zobrist_table[i][j] = rng.rand<uint64_t>();
         }
     }
+
+    zobrist::zobrist_side = rng.rand<uint64_t>();
+    for (int i = 0; i < 16; i++) {
+        zobrist::zobrist_castling[i] = rng.rand<uint64_t>();
+    }
+    for (int i = 0; i < NSQUARES; i++) {
+        zobrist::zobrist_epsq[i] = rng.rand<uint64_t>();
+    }
+    zobrist::zobrist_epsq[NO_SQUARE] = 0;
 }
 
 //Pretty-prints the position (including FEN and hash key)
@@ -62,17 +77,42 @@ std::string Position::fen() const {
         }
     }
 
+    std::string castling;
+    if (!(history[game_ply].entry & WHITE_OO_MASK)) castling += 'K';
+    if (!(history[game_ply].entry & WHITE_OOO_MASK)) castling += 'Q';
+    if (!(history[game_ply].entry & BLACK_OO_MASK)) castling += 'k';
+    if (!(history[game_ply].entry & BLACK_OOO_MASK)) castling += 'q';
+
+    //The halfmove clock and move number aren't tracked, so they are always written as "0 1"
     fen << (side_to_play == WHITE ? " w " : " b ")
-        << (history[game_ply].entry & WHITE_OO_MASK ? "" : "K")
-        << (history[game_ply].entry & WHITE_OOO_MASK ? "" : "Q")
-        << (history[game_ply].entry & BLACK_OO_MASK ? "" : "k")
-        << (history[game_ply].entry & BLACK_OOO_MASK ? "" : "q")
-        << (history[game_ply].entry & ALL_CASTLING_MASK ? "- " : "")
-        << (history[game_ply].epsq == NO_SQUARE ? " -" : SQSTR[history[game_ply].epsq]);
+        << (castling.empty() ? "-" : castling) << ' '
+        << (history[game_ply].epsq == NO_SQUARE ? "-" : SQSTR[history[game_ply].epsq])
+        << " 0 1";
 
     return fen.str();
 }
 
+//Copies src into dst, including the history up to the current ply so that moves played before the copy
+//can still be undone on it. dst keeps its own history if it is already long enough
+void Position::copy(const Position& src, Position& dst) {
+    std::copy(std::begin(src.piece_bb), std::end(src.piece_bb), std::begin(dst.piece_bb));
+    std::copy(std::begin(src.board), std::end(src.board), std::begin(dst.board));
+    dst.side_to_play = src.side_to_play;
+    dst.game_ply = src.game_ply;
+    dst.hash = src.hash;
+    dst.checkers = src.checkers;
+    dst.pinned = src.pinned;
+
+    if (dst.history.size() < src.history.size()) {
+        dst.history.resize(src.history.size());
+    }
+    std::copy(src.history.begin(), src.history.begin() + src.game_ply + 1, dst.history.begin());
+}
+
+void Position::grow_history() {
+    history.resize(history.size() * 2);
+}
+
 //Updates a position according to an FEN string
 void Position::set(const std::string& fen, Position& p) {
     //Clear existing state so set() can be called on an already-initialized position
@@ -94,13 +134,13 @@ void Position::set(const std::string& fen, Position& p) {
     }
 
     std::istringstream ss(fen.substr(fen.find(' ')));
-    unsigned char token;
+    std::string side, castling, ep;
+    ss >> side >> castling >> ep;
 
-    ss >> token;
-    p.side_to_play = token == 'w' ? WHITE : BLACK;
+    p.side_to_play = side == "b" ? BLACK : WHITE;
 
     p.history[p.game_ply].entry = ALL_CASTLING_MASK;
-    while (ss >> token && !isspace(token)) {
+    for (char token : castling) {
         switch (token) {
         case 'K':
             p.history[p.game_ply].entry &= ~WHITE_OO_MASK;
@@ -118,12 +158,16 @@ void Position::set(const std::string& fen, Position& p) {
     }
 
     //Parse en passant square from FEN
-    if (ss >> token && token != '-') {
-        int file = token - 'a';
-        ss >> token;
-        int rank = token - '1';
+    if (ep.size() == 2) {
+        int file = ep[0] - 'a';
+        int rank = ep[1] - '1';
         p.history[p.game_ply].epsq = Square(file + rank * 8);
     }
+
+    p.hash ^= zobrist::state_key(p.history[p.game_ply]);
+    if (p.side_to_play == BLACK) {
+        p.hash ^= zobrist::zobrist_side;
+    }
 }
     
 
@@ -4,6 +4,7 @@
 #include "types.h"
 #include <ostream>
 #include <string>
+#include <vector>
 #include "tables.h"
 
 //A psuedorandom number generator
@@ -32,6 +33,9 @@ public:
 
 namespace zobrist {
     extern uint64_t zobrist_table[NPIECES][NSQUARES];
+    extern uint64_t zobrist_side;
+    extern uint64_t zobrist_castling[16];
+    extern uint64_t zobrist_epsq[NSQUARES + 1];
     extern void initialise_zobrist_keys();
 }
 
@@ -50,11 +54,27 @@ struct UndoInfo {
 
     constexpr UndoInfo() : entry(0), captured(NO_PIECE), epsq(NO_SQUARE) {}
     
-    //This preserves the entry bitboard across moves
-    UndoInfo(const UndoInfo& prev) : 
-        entry(prev.entry), captured(NO_PIECE), epsq(NO_SQUARE) {}
+    //The entry for the next ply: preserves the entry bitboard across moves and starts with nothing
+    //captured and no en passant square. Copies keep every field, so the history can be reallocated
+    static constexpr UndoInfo next(const UndoInfo& prev) {
+        UndoInfo info;
+        info.entry = prev.entry;
+        return info;
+    }
 };
 
+namespace zobrist {
+    //Returns the part of the hash that depends on the castling rights and the en passant square. A castling
+    //right is still available as long as neither the king nor that rook has left its square
+    inline uint64_t state_key(const UndoInfo& info) {
+        int rights = int((info.entry & WHITE_OO_MASK) == 0)
+            | int((info.entry & WHITE_OOO_MASK) == 0) << 1
+            | int((info.entry & BLACK_OO_MASK) == 0) << 2
+            | int((info.entry & BLACK_OOO_MASK) == 0) << 3;
+        return zobrist_castling[rights] ^ zobrist_epsq[info.epsq];
+    }
+}
+
 class Position {
 private:
     //A bitboard of the locations of each piece
@@ -70,11 +90,14 @@ private:
     int game_ply;
     
     //The zobrist hash of the position, which can be incrementally updated and rolled back after each
-    //make/unmake
+    //make/unmake. It covers the pieces, the side to play, the castling rights and the en passant square
     uint64_t hash;
 public:
-    //The history of non-recoverable information
-    UndoInfo history[256];
+    //The history of non-recoverable information, indexed by game ply. It starts with room for
+    //INITIAL_HISTORY plies and doubles whenever a move is played past its end, so long games and
+    //analysis lines never overrun it
+    static constexpr int INITIAL_HISTORY = 128;
+    std::vector<UndoInfo> history;
     
     //The bitboard of enemy pieces that are currently attacking the king, updated whenever generate_moves()
     //is called
@@ -86,11 +109,10 @@ public:
     
     
     Position() : piece_bb{ 0 }, side_to_play(WHITE), game_ply(0), board{}, 
-        hash(0), pinned(0), checkers(0) {
+        hash(0), history(INITIAL_HISTORY), pinned(0), checkers(0) {
         
         //Sets all squares on the board as empty
         std::fill(std::begin(board), std::end(board), NO_PIECE);
-        history[0] = UndoInfo();
     }
     
     //Places a piece on a particular square and updates the hash. Placing a piece on a square that is 
@@ -114,8 +136,12 @@ public:
 
     friend std::ostream& operator<<(std::ostream& os, const Position& p);
     static void set(const std::string& fen, Position& p);
+    static void copy(const Position& src, Position& dst);
     std::string fen() const;
 
+    //Doubles the history, called by play() when it is about to write past the end
+    void grow_history();
+
     Position& operator=(const Position&) = delete;
     inline bool operator==(const Position& other) const { return hash == other.hash; }
 
@@ -125,6 +151,16 @@ public:
     inline Color turn() const { return side_to_play; }
     inline int ply() const { return game_ply; }
     inline uint64_t get_hash() const { return hash; }
+    inline Square ep_square() const { return history[game_ply].epsq; }
+
+    //The castling rights that are still available, K = 1, Q = 2, k = 4, q = 8
+    inline int castling_rights() const {
+        Bitboard entry = history[game_ply].entry;
+        return int((entry & WHITE_OO_MASK) == 0)
+            | int((entry & WHITE_OOO_MASK) == 0) << 1
+            | int((entry & BLACK_OO_MASK) == 0) << 2
+            | int((entry & BLACK_OOO_MASK) == 0) << 3;
+    }
 
     template<Color C> inline Bitboard diagonal_sliders() const;
     template<Color C> inline Bitboard orthogonal_sliders() const;
@@ -212,7 +248,8 @@ template<Color C>
 void Position::play(const Move m) {
     side_to_play = color_invert(side_to_play);
     ++game_ply;
-    history[game_ply] = UndoInfo(history[game_ply - 1]);
+    if (game_ply == int(history.size())) grow_history();
+    history[game_ply] = UndoInfo::next(history[game_ply - 1]);
 
     MoveFlags type = m.flags();
     history[game_ply].entry |= SQUARE_BB[m.to()] | SQUARE_BB[m.from()];
@@ -301,6 +338,9 @@ void Position::play(const Move m) {
         
         break;
     }
+
+    hash ^= zobrist::zobrist_side ^ zobrist::state_key(history[game_ply - 1])
+        ^ zobrist::state_key(history[game_ply]);
 }
 
 //Undos a move in the current position, rolling it back to the previous position
@@ -357,6 +397,9 @@ void Position::undo(const Move m) {
         break;
     }
 
+    hash ^= zobrist::zobrist_side ^ zobrist::state_key(history[game_ply])
+        ^ zobrist::state_key(history[game_ply - 1]);
+
     side_to_play = color_invert(side_to_play);
     --game_ply;
 }
@@ -0,0 +1,103 @@
+#ifndef REPLAY_H
+#define REPLAY_H
+
+#include "position.h"
+#include <cstdint>
+
+//Batched move replay for importing games: a whole move sequence is checked and played in one call
+//instead of one parse and one play crossing per move. Both functions stop at the first move that
+//isn't legal in the position it is played in and return its index, with every move before it
+//played; they return -1 when the whole sequence was played
+
+//Plays m if it is one of the legal moves of the position
+template<Color Us>
+inline bool play_if_legal(Position& p, Move m) {
+    MoveList<Us> list(p);
+    for (Move legal : list) {
+        if (legal == m) {
+            p.play<Us>(m);
+            return true;
+        }
+    }
+    return false;
+}
+
+//Looks up the legal move for a UCI move (e.g. "e7e8q") of length len and plays it
+template<Color Us>
+inline bool play_uci_if_legal(Position& p, const char* uci, int len) {
+    if (len != 4 && len != 5) {
+        return false;
+    }
+
+    int from = (uci[0] - 'a') + (uci[1] - '1') * 8;
+    int to = (uci[2] - 'a') + (uci[3] - '1') * 8;
+
+    //Promotion type in the flags' low two bits: knight, bishop, rook, queen
+    int promotion = -1;
+    if (len == 5) {
+        switch (uci[4]) {
+            case 'n': promotion = 0; break;
+            case 'b': promotion = 1; break;
+            case 'r': promotion = 2; break;
+            case 'q': promotion = 3; break;
+            default: return false;
+        }
+    }
+
+    MoveList<Us> list(p);
+    for (Move legal : list) {
+        if (legal.from() != from || legal.to() != to) {
+            continue;
+        }
+
+        bool is_promotion = (legal.flags() & PR_KNIGHT) != 0;
+        if (is_promotion != (promotion >= 0) || (is_promotion && (legal.flags() & 0b0011) != promotion)) {
+            continue;
+        }
+
+        p.play<Us>(legal);
+        return true;
+    }
+    return false;
+}
+
+//Replays count raw moves (flags | from | to, as generate_legals writes them)
+inline int play_moves(Position& p, const int32_t* moves, int count) {
+    for (int i = 0; i < count; i++) {
+        Move m(static_cast<uint16_t>(moves[i]));
+        bool played = p.turn() == WHITE ? play_if_legal<WHITE>(p, m) : play_if_legal<BLACK>(p, m);
+        if (!played) {
+            return i;
+        }
+    }
+    return -1;
+}
+
+//Replays a NUL-terminated, whitespace-separated list of UCI moves such as "e2e4 e7e5 g1f3"
+inline int play_uci_moves(Position& p, const char* moves) {
+    int index = 0;
+
+    for (const char* c = moves; *c != '\0'; ) {
+        if (*c == ' ' || *c == '\t' || *c == '\n' || *c == '\r') {
+            c++;
+            continue;
+        }
+
+        const char* start = c;
+        while (*c != '\0' && *c != ' ' && *c != '\t' && *c != '\n' && *c != '\r') {
+            c++;
+        }
+        int len = static_cast<int>(c - start);
+
+        bool played = p.turn() == WHITE ? play_uci_if_legal<WHITE>(p, start, len) :
+            play_uci_if_legal<BLACK>(p, start, len);
+        if (!played) {
+            return index;
+        }
+
+        index++;
+    }
+    return -1;
+}
+
+#endif // REPLAY_H
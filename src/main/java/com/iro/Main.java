@@ -1,46 +1,135 @@
 package com.iro;
 
+import com.iro.board.Board;
+import com.iro.board.MoveGenerator;
+import com.iro.board.MoveGenerators;
+import com.iro.board.NativeBoard;
+import com.iro.board.Perft;
+import com.iro.board.PerftTable;
 import com.iro.gui.GamePanel;
 
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 public class Main {
     public static void main(String[] args) {
         String opponent = "black";
         int depth = 6;
+        int fps = 0;
+        int perftDepth = 0;
+        int threads = 1;
+        boolean scaling = false;
+        int hashMegabytes = 0;
+        String position = "start";
+        String backend = MoveGenerators.AUTO;
 
         for (String arg : args) {
             if (arg.startsWith("--opponent=")) {
                 opponent = arg.substring("--opponent=".length());
             } else if (arg.startsWith("--depth=")) {
                 depth = Integer.parseInt(arg.substring("--depth=".length()));
+            } else if (arg.startsWith("--fps=")) {
+                fps = Integer.parseInt(arg.substring("--fps=".length()));
+            } else if (arg.startsWith("--perft=")) {
+                perftDepth = Integer.parseInt(arg.substring("--perft=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.equals("--scaling")) {
+                scaling = true;
+            } else if (arg.startsWith("--hash=")) {
+                hashMegabytes = Integer.parseInt(arg.substring("--hash=".length()));
+            } else if (arg.startsWith("--position=")) {
+                position = arg.substring("--position=".length());
+            } else if (arg.startsWith("--backend=")) {
+                backend = arg.substring("--backend=".length());
             }
         }
 
+        if (!backend.equals(MoveGenerators.AUTO) && !backend.equals(MoveGenerators.NATIVE) &&
+            !backend.equals(MoveGenerators.FFM) && !backend.equals(MoveGenerators.JAVA)) {
+            System.out.println("Usage: --backend=auto|native|ffm|java");
+            System.exit(1);
+        }
+
+        if (perftDepth > 0) {
+            if (!position.equals("start") && !position.equals("kiwipete")) {
+                System.out.println("Usage: --perft=<depth> --threads=<number> --hash=<MB> --position=start|kiwipete");
+                System.exit(1);
+            }
+
+            String fen = position.equals("kiwipete") ? Perft.KIWIPETE : Board.START_POSITION;
+            runPerft(perftDepth, fen, threads, scaling, hashMegabytes, backend);
+            return;
+        }
+
         if (!opponent.equals("white") && !opponent.equals("black") && !opponent.equals("human")) {
-            System.out.println("Usage: --opponent=white|black|human --depth=<number>");
+            System.out.println("Usage: --opponent=white|black|human --depth=<number> --fps=<number>");
             System.exit(1);
         }
 
         System.out.println("Opponent: " + opponent + ", Depth: " + depth);
 
-        JFrame window = new JFrame("Iro Chess");
-        window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        window.setResizable(false);
+        // choosing the backend can take a moment, it is done before the window is built
+        MoveGenerator generator = MoveGenerators.create(backend);
+        String gameOpponent = opponent;
+        int gameDepth = depth;
+        int gameFps = fps;
+
+        // the panel is only ever touched on the event dispatch thread, from construction on
+        SwingUtilities.invokeLater(() -> {
+            JFrame window = new JFrame("Iro Chess");
+            window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            window.setResizable(false);
 
-        // Add GamePanel to the window
-        GamePanel gamePanel = new GamePanel(opponent, depth);
-        window.add(gamePanel);
-        window.pack();
-        window.setLocationRelativeTo(null);
-        window.setVisible(true);
+            // Add GamePanel to the window
+            GamePanel gamePanel = new GamePanel(gameOpponent, gameDepth, generator);
+            window.add(gamePanel);
+            window.pack();
+            window.setLocationRelativeTo(null);
+            window.setVisible(true);
 
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("Cleaning up...");
-            gamePanel.cleanup();
-        }));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("Cleaning up...");
+                gamePanel.cleanup();
+            }));
 
-        gamePanel.launchGame();
+            gamePanel.launchGame(gameFps);
+        });
     }
-}
 
+    private static void runPerft(int depth, String fen, int threads, boolean scaling, int hashMegabytes,
+                                 String backend) {
+        Board javaBoard = new Board();
+        javaBoard.parseFen(fen);
+        Perft perft = new Perft(javaBoard);
+
+        if (threads > 1) {
+            perft.perftTestParallel(depth, threads);
+        } else {
+            perft.perftTest(depth);
+        }
+
+        if (scaling) {
+            perft.perftScaling(depth);
+        }
+
+        if (hashMegabytes > 0) {
+            perft.perftTest(depth, new PerftTable(hashMegabytes));
+        }
+
+        MoveGenerator generator = MoveGenerators.create(backend);
+        generator.setFen(fen);
+
+        if (threads > 1 && generator instanceof NativeBoard nativeBoard) {
+            Perft.perftTestParallel(nativeBoard, depth, threads);
+        } else {
+            Perft.perftTest(generator, depth);
+        }
+
+        if (hashMegabytes > 0) {
+            Perft.perftTest(generator, depth, new PerftTable(hashMegabytes));
+        }
+
+        generator.destroyPosition();
+    }
+}
@@ -0,0 +1,148 @@
+package com.iro.board;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+    Binary snapshot of the flattened slider attack tables, so a cold JVM can load them from disk
+    instead of computing every magic attack set.
+
+    Layout (little endian, so loading is a plain memory copy on x86 and ARM):
+
+        int   magic          'IRAT'
+        int   version
+        long  layout         CRC32 of the magic numbers and relevant bits the tables were built with
+        int   bishop count   number of longs in bishopAttacks
+        int   rook count     number of longs in rookAttacks
+        long  payload crc    CRC32 of everything after the header
+        long[]               bishopAttacks, then rookAttacks
+
+    A snapshot that doesn't match on any header field or checksum is ignored and the tables are
+    recomputed. Write one with
+
+        java -cp <classes> com.iro.board.AttackTableSnapshot build/attack-tables.bin
+
+    and point -Diro.attackTables at it.
+*/
+public final class AttackTableSnapshot {
+    public static final String PROPERTY = "iro.attackTables";
+
+    private static final int MAGIC = 0x49524154;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private AttackTableSnapshot() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("usage: AttackTableSnapshot <output file>");
+            System.exit(1);
+        }
+
+        Path path = Path.of(args[0]);
+        write(path, AttackTables.get());
+
+        System.out.println("Wrote attack table snapshot to " + path.toAbsolutePath());
+    }
+
+    static void write(Path path, AttackTables tables) throws IOException {
+        int payloadBytes = (tables.bishopAttacks.length + tables.rookAttacks.length) * Long.BYTES;
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadBytes).order(ByteOrder.LITTLE_ENDIAN);
+        payload.asLongBuffer().put(tables.bishopAttacks).put(tables.rookAttacks);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(layoutChecksum());
+        header.putInt(tables.bishopAttacks.length);
+        header.putInt(tables.rookAttacks.length);
+        header.putLong(crc.getValue());
+        header.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        }
+    }
+
+    /*
+        Fills the slider tables from the snapshot, throws when it can't be used. The tables are
+        only written once the whole payload has checked out.
+
+        The file is read with one channel read into a direct buffer rather than mapped: it is under
+        1 MB and the first FileChannel.map in a JVM costs tens of milliseconds of setup, more than
+        computing the tables.
+    */
+    static void load(Path path, long[] bishopAttacks, long[] rookAttacks) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long expectedSize = HEADER_BYTES + (long) (bishopAttacks.length + rookAttacks.length) * Long.BYTES;
+            if (channel.size() != expectedSize) {
+                throw new IOException("size " + channel.size() + ", expected " + expectedSize);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) expectedSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("truncated while reading");
+                }
+            }
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != layoutChecksum() ||
+                buffer.getInt(16) != bishopAttacks.length || buffer.getInt(20) != rookAttacks.length) {
+                throw new IOException("header doesn't match these tables");
+            }
+
+            ByteBuffer payload = buffer.slice(HEADER_BYTES, (int) (expectedSize - HEADER_BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != buffer.getLong(24)) {
+                throw new IOException("payload checksum mismatch");
+            }
+
+            LongBuffer longs = payload.asLongBuffer();
+            longs.get(bishopAttacks);
+            longs.get(rookAttacks);
+        }
+    }
+
+    // a snapshot is only valid for the magic numbers it was built with
+    private static long layoutChecksum() {
+        ByteBuffer layout = ByteBuffer.allocate(64 * 2 * (Long.BYTES + Integer.BYTES));
+
+        for (int square = 0; square < 64; square++) {
+            layout.putLong(AttackTables.BISHOP_MAGIC_NUMBERS[square]);
+            layout.putLong(AttackTables.ROOK_MAGIC_NUMBERS[square]);
+            layout.putInt(AttackTables.BISHOP_RELEVANT_BITS[square]);
+            layout.putInt(AttackTables.ROOK_RELEVANT_BITS[square]);
+        }
+        layout.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(layout);
+        return crc.getValue();
+    }
+}
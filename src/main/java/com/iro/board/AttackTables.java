@@ -0,0 +1,560 @@
+package com.iro.board;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/*
+    Leaper and magic slider attack tables, built once per JVM on first use and shared read-only by
+    every Board.
+
+    The slider tables are flattened into one long[] per piece type. Square s owns the slice starting
+    at bishopOffsets[s] (rookOffsets[s]) that is 1 << relevant bits long, so a lookup is
+
+        bishopAttacks[bishopOffsets[square] + magicIndex]
+
+    which is about 850 KB for both sliders instead of the 2.3 MB of fixed 512/4096-entry rows.
+
+    squaresBetween[a * 64 + b] holds the squares strictly between a and b when they share a rank, file
+    or diagonal, lines[a * 64 + b] the whole line through both. Both are 0 for unaligned squares and
+    are used for pin and check masks by the legal move generator.
+
+    When -Diro.attackTables points at a snapshot written by AttackTableSnapshot the slider tables are
+    loaded from it, otherwise (or if the snapshot is stale or corrupt) they are computed here.
+*/
+final class AttackTables {
+    private static final long NOT_A_FILE = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_H_FILE = 0x7F7F7F7F7F7F7F7FL;
+    private static final long NOT_HG_FILE = 0x3F3F3F3F3F3F3F3FL;
+    private static final long NOT_AB_FILE = 0xFCFCFCFCFCFCFCFCL;
+
+    static final int[] BISHOP_RELEVANT_BITS = {
+        6, 5, 5, 5, 5, 5, 5, 6,
+        5, 5, 5, 5, 5, 5, 5, 5,
+        5, 5, 7, 7, 7, 7, 5, 5,
+        5, 5, 7, 9, 9, 7, 5, 5,
+        5, 5, 7, 9, 9, 7, 5, 5,
+        5, 5, 7, 7, 7, 7, 5, 5,
+        5, 5, 5, 5, 5, 5, 5, 5,
+        6, 5, 5, 5, 5, 5, 5, 6
+    };
+
+    static final int[] ROOK_RELEVANT_BITS = {
+        12, 11, 11, 11, 11, 11, 11, 12,
+        11, 10, 10, 10, 10, 10, 10, 11,
+        11, 10, 10, 10, 10, 10, 10, 11,
+        11, 10, 10, 10, 10, 10, 10, 11,
+        11, 10, 10, 10, 10, 10, 10, 11,
+        11, 10, 10, 10, 10, 10, 10, 11,
+        11, 10, 10, 10, 10, 10, 10, 11,
+        12, 11, 11, 11, 11, 11, 11, 12
+    };
+
+    static final long[] ROOK_MAGIC_NUMBERS = {
+        0x8a80104000800020L,
+        0x140002000100040L,
+        0x2801880a0017001L,
+        0x100081001000420L,
+        0x200020010080420L,
+        0x3001c0002010008L,
+        0x8480008002000100L,
+        0x2080088004402900L,
+        0x800098204000L,
+        0x2024401000200040L,
+        0x100802000801000L,
+        0x120800800801000L,
+        0x208808088000400L,
+        0x2802200800400L,
+        0x2200800100020080L,
+        0x801000060821100L,
+        0x80044006422000L,
+        0x100808020004000L,
+        0x12108a0010204200L,
+        0x140848010000802L,
+        0x481828014002800L,
+        0x8094004002004100L,
+        0x4010040010010802L,
+        0x20008806104L,
+        0x100400080208000L,
+        0x2040002120081000L,
+        0x21200680100081L,
+        0x20100080080080L,
+        0x2000a00200410L,
+        0x20080800400L,
+        0x80088400100102L,
+        0x80004600042881L,
+        0x4040008040800020L,
+        0x440003000200801L,
+        0x4200011004500L,
+        0x188020010100100L,
+        0x14800401802800L,
+        0x2080040080800200L,
+        0x124080204001001L,
+        0x200046502000484L,
+        0x480400080088020L,
+        0x1000422010034000L,
+        0x30200100110040L,
+        0x100021010009L,
+        0x2002080100110004L,
+        0x202008004008002L,
+        0x20020004010100L,
+        0x2048440040820001L,
+        0x101002200408200L,
+        0x40802000401080L,
+        0x4008142004410100L,
+        0x2060820c0120200L,
+        0x1001004080100L,
+        0x20c020080040080L,
+        0x2935610830022400L,
+        0x44440041009200L,
+        0x280001040802101L,
+        0x2100190040002085L,
+        0x80c0084100102001L,
+        0x4024081001000421L,
+        0x20030a0244872L,
+        0x12001008414402L,
+        0x2006104900a0804L,
+        0x1004081002402L
+    };
+
+    static final long[] BISHOP_MAGIC_NUMBERS = {
+        0x40040844404084L,
+        0x2004208a004208L,
+        0x10190041080202L,
+        0x108060845042010L,
+        0x581104180800210L,
+        0x2112080446200010L,
+        0x1080820820060210L,
+        0x3c0808410220200L,
+        0x4050404440404L,
+        0x21001420088L,
+        0x24d0080801082102L,
+        0x1020a0a020400L,
+        0x40308200402L,
+        0x4011002100800L,
+        0x401484104104005L,
+        0x801010402020200L,
+        0x400210c3880100L,
+        0x404022024108200L,
+        0x810018200204102L,
+        0x4002801a02003L,
+        0x85040820080400L,
+        0x810102c808880400L,
+        0xe900410884800L,
+        0x8002020480840102L,
+        0x220200865090201L,
+        0x2010100a02021202L,
+        0x152048408022401L,
+        0x20080002081110L,
+        0x4001001021004000L,
+        0x800040400a011002L,
+        0xe4004081011002L,
+        0x1c004001012080L,
+        0x8004200962a00220L,
+        0x8422100208500202L,
+        0x2000402200300c08L,
+        0x8646020080080080L,
+        0x80020a0200100808L,
+        0x2010004880111000L,
+        0x623000a080011400L,
+        0x42008c0340209202L,
+        0x209188240001000L,
+        0x400408a884001800L,
+        0x110400a6080400L,
+        0x1840060a44020800L,
+        0x90080104000041L,
+        0x201011000808101L,
+        0x1a2208080504f080L,
+        0x8012020600211212L,
+        0x500861011240000L,
+        0x180806108200800L,
+        0x4000020e01040044L,
+        0x300000261044000aL,
+        0x802241102020002L,
+        0x20906061210001L,
+        0x5a84841004010310L,
+        0x4010801011c04L,
+        0xa010109502200L,
+        0x4a02012000L,
+        0x500201010098b028L,
+        0x8040002811040900L,
+        0x28000010020204L,
+        0x6000020202d0240L,
+        0x8918844842082200L,
+        0x4010011029020020L
+    };
+
+    final long[][] pawnAttacks = new long[2][64];
+    final long[] knightAttacks = new long[64];
+    final long[] kingAttacks = new long[64];
+    final long[] bishopMasks = new long[64];
+    final long[] rookMasks = new long[64];
+
+    final int[] bishopOffsets = new int[64];
+    final int[] rookOffsets = new int[64];
+    final long[] bishopAttacks;
+    final long[] rookAttacks;
+
+    final long[] squaresBetween = new long[64 * 64];
+    final long[] lines = new long[64 * 64];
+
+    // built by the first get() call, class initialisation makes it safe to share across threads
+    private static final class Holder {
+        static final AttackTables INSTANCE = new AttackTables();
+    }
+
+    static AttackTables get() {
+        return Holder.INSTANCE;
+    }
+
+    private AttackTables() {
+        initLeaperAttacks();
+
+        bishopAttacks = new long[initSliderOffsets(bishopOffsets, BISHOP_RELEVANT_BITS)];
+        rookAttacks = new long[initSliderOffsets(rookOffsets, ROOK_RELEVANT_BITS)];
+
+        initLineTables();
+        initSliderMasks();
+
+        if (!loadSnapshot()) {
+            initSlidersAttacks(true);
+            initSlidersAttacks(false);
+        }
+    }
+
+    // fills the slider tables from the -Diro.attackTables snapshot when one is given and usable
+    private boolean loadSnapshot() {
+        String snapshot = System.getProperty(AttackTableSnapshot.PROPERTY);
+        if (snapshot == null) {
+            return false;
+        }
+
+        try {
+            AttackTableSnapshot.load(Path.of(snapshot), bishopAttacks, rookAttacks);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Ignoring attack table snapshot " + snapshot + " (" + e + "), recomputing tables");
+            return false;
+        }
+    }
+
+    private static long setBit(long bitboard, SquareEnum square) {
+        return bitboard | (1L << square.ordinal());
+    }
+
+    private static long maskPawnAttacks(int side, SquareEnum square) {
+        long attacks = 0;
+        long bitboard = 0;
+
+        bitboard = setBit(bitboard, square);
+
+        if (side == Board.SIDE_WHITE) {
+            if (((bitboard << 7) & NOT_H_FILE) != 0) {
+                attacks |= (bitboard << 7);
+            }
+            if (((bitboard << 9) & NOT_A_FILE) != 0) {
+                attacks |= (bitboard << 9);
+            }
+        } else {
+            if (((bitboard >>> 7) & NOT_A_FILE) != 0) {
+                attacks |= (bitboard >>> 7);
+            }
+            if (((bitboard >>> 9) & NOT_H_FILE) != 0) {
+                attacks |= (bitboard >>> 9);
+            }
+        }
+
+        return attacks;
+    }
+
+    private static long maskKnightAttacks(SquareEnum square) {
+        long attacks = 0;
+        long bitboard = 0;
+
+        bitboard = setBit(bitboard, square);
+
+        if (((bitboard >>> 17) & NOT_H_FILE) != 0) {
+            attacks |= (bitboard >>> 17);
+        }
+        if (((bitboard >>> 15) & NOT_A_FILE) != 0) {
+            attacks |= (bitboard >>> 15);
+        }
+        if (((bitboard >>> 10) & NOT_HG_FILE) != 0) {
+            attacks |= (bitboard >>> 10);
+        }
+        if (((bitboard >>> 6) & NOT_AB_FILE) != 0) {
+            attacks |= (bitboard >>> 6);
+        }
+        if (((bitboard << 17) & NOT_A_FILE) != 0) {
+            attacks |= (bitboard << 17);
+        }
+        if (((bitboard << 15) & NOT_H_FILE) != 0) {
+            attacks |= (bitboard << 15);
+        }
+        if (((bitboard << 10) & NOT_AB_FILE) != 0) {
+            attacks |= (bitboard << 10);
+        }
+        if (((bitboard << 6) & NOT_HG_FILE) != 0) {
+            attacks |= (bitboard << 6);
+        }
+
+        return attacks;
+    }
+
+    private static long maskKingAttacks(SquareEnum square) {
+        long attacks = 0;
+        long bitboard = 0;
+
+        bitboard = setBit(bitboard, square);
+
+        if ((bitboard >>> 8) != 0) {
+            attacks |= (bitboard >>> 8);
+        }
+        if (((bitboard >>> 9) & NOT_H_FILE) != 0) {
+            attacks |= (bitboard >>> 9);
+        }
+        if (((bitboard >>> 7) & NOT_A_FILE) != 0) {
+            attacks |= (bitboard >>> 7);
+        }
+        if (((bitboard >>> 1) & NOT_H_FILE) != 0) {
+            attacks |= (bitboard >>> 1);
+        }
+        if ((bitboard << 8) != 0) {
+            attacks |= (bitboard << 8);
+        }
+        if (((bitboard << 9) & NOT_A_FILE) != 0) {
+            attacks |= (bitboard << 9);
+        }
+        if (((bitboard << 7) & NOT_H_FILE) != 0) {
+            attacks |= (bitboard << 7);
+        }
+        if (((bitboard << 1) & NOT_A_FILE) != 0) {
+            attacks |= (bitboard << 1);
+        }
+
+        return attacks;
+    }
+
+    static long maskBishopAttacks(SquareEnum square) {
+        long attacks = 0;
+
+        int rank;
+        int file;
+        int targetRank = square.ordinal() / 8;
+        int targetFile = square.ordinal() % 8;
+
+        for (rank = targetRank + 1, file = targetFile + 1; rank <= 6 && file <= 6; rank++, file++) {
+            attacks |= (1L << (rank * 8 + file));
+        }
+        for (rank = targetRank - 1, file = targetFile + 1; rank >= 1 && file <= 6; rank--, file++) {
+            attacks |= (1L << (rank * 8 + file));
+        }
+        for (rank = targetRank + 1, file = targetFile - 1; rank <= 6 && file >= 1; rank++, file--) {
+            attacks |= (1L << (rank * 8 + file));
+        }
+        for (rank = targetRank - 1, file = targetFile - 1; rank >= 1 && file >= 1; rank--, file--) {
+            attacks |= (1L << (rank * 8 + file));
+        }
+
+        return attacks;
+    }
+
+    static long maskRookAttacks(SquareEnum square) {
+        long attacks = 0;
+
+        int rank;
+        int file;
+        int targetRank = square.ordinal() / 8;
+        int targetFile = square.ordinal() % 8;
+
+        for (rank = targetRank + 1; rank <= 6; rank++) {
+            attacks |= (1L << (rank * 8 + targetFile));
+        }
+        for (rank = targetRank - 1; rank >= 1; rank--) {
+            attacks |= (1L << (rank * 8 + targetFile));
+        }
+        for (file = targetFile + 1; file <= 6; file++) {
+            attacks |= (1L << (targetRank * 8 + file));
+        }
+        for (file = targetFile - 1; file >= 1; file--) {
+            attacks |= (1L << (targetRank * 8 + file));
+        }
+
+        return attacks;
+    }
+
+    static long bishopAttacksOnTheFly(SquareEnum square, long block) {
+        long attacks = 0;
+
+        int rank;
+        int file;
+        int targetRank = square.ordinal() / 8;
+        int targetFile = square.ordinal() % 8;
+
+        for (rank = targetRank + 1, file = targetFile + 1; rank <= 7 && file <= 7; ++rank, ++file) {
+            attacks |= (1L << (rank * 8 + file));
+            if (((1L << (rank * 8 + file)) & block) != 0) {
+                break;
+            }
+        }
+
+        for (rank = targetRank - 1, file = targetFile + 1; rank >= 0 && file <= 7; --rank, ++file) {
+            attacks |= (1L << (rank * 8 + file));
+            if (((1L << (rank * 8 + file)) & block) != 0) {
+                break;
+            }
+        }
+
+        for (rank = targetRank + 1, file = targetFile - 1; rank <= 7 && file >= 0; ++rank, --file) {
+            attacks |= (1L << (rank * 8 + file));
+            if (((1L << (rank * 8 + file)) & block) != 0) {
+                break;
+            }
+        }
+
+        for (rank = targetRank - 1, file = targetFile - 1; rank >= 0 && file >= 0; --rank, --file) {
+            attacks |= (1L << (rank * 8 + file));
+            if (((1L << (rank * 8 + file)) & block) != 0) {
+                break;
+            }
+        }
+
+        return attacks;
+    }
+
+    static long rookAttacksOnTheFly(SquareEnum square, long block) {
+        long attacks = 0;
+
+        int rank;
+        int file;
+        int targetRank = square.ordinal() / 8;
+        int targetFile = square.ordinal() % 8;
+
+        for (rank = targetRank + 1; rank <= 7; ++rank) {
+            attacks |= (1L << (rank * 8 + targetFile));
+            if (((1L << (rank * 8 + targetFile)) & block) != 0) {
+                break;
+            }
+        }
+
+        for (rank = targetRank - 1; rank >= 0; --rank) {
+            attacks |= (1L << (rank * 8 + targetFile));
+            if (((1L << (rank * 8 + targetFile)) & block) != 0) {
+                break;
+            }
+        }
+
+        for (file = targetFile + 1; file <= 7; ++file) {
+            attacks |= (1L << (targetRank * 8 + file));
+            if (((1L << (targetRank * 8 + file)) & block) != 0) {
+                break;
+            }
+        }
+
+        for (file = targetFile - 1; file >= 0; --file) {
+            attacks |= (1L << (targetRank * 8 + file));
+            if (((1L << (targetRank * 8 + file)) & block) != 0) {
+                break;
+            }
+        }
+
+        return attacks;
+    }
+
+    private void initLeaperAttacks() {
+        for (int square = 0; square < 64; square++) {
+            pawnAttacks[Board.SIDE_WHITE][square] =
+                maskPawnAttacks(Board.SIDE_WHITE, SquareEnum.intToSquare(square));
+            pawnAttacks[Board.SIDE_BLACK][square] =
+                maskPawnAttacks(Board.SIDE_BLACK, SquareEnum.intToSquare(square));
+
+            knightAttacks[square] = maskKnightAttacks(SquareEnum.intToSquare(square));
+
+            kingAttacks[square] = maskKingAttacks(SquareEnum.intToSquare(square));
+        }
+    }
+
+    private void initLineTables() {
+        for (int a = 0; a < 64; a++) {
+            SquareEnum squareA = SquareEnum.intToSquare(a);
+            long bitA = 1L << a;
+
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+
+                SquareEnum squareB = SquareEnum.intToSquare(b);
+                long bitB = 1L << b;
+
+                if ((rookAttacksOnTheFly(squareA, 0L) & bitB) != 0) {
+                    squaresBetween[a * 64 + b] = rookAttacksOnTheFly(squareA, bitB) & rookAttacksOnTheFly(squareB, bitA);
+                    lines[a * 64 + b] = (rookAttacksOnTheFly(squareA, 0L) & rookAttacksOnTheFly(squareB, 0L)) | bitA | bitB;
+                } else if ((bishopAttacksOnTheFly(squareA, 0L) & bitB) != 0) {
+                    squaresBetween[a * 64 + b] = bishopAttacksOnTheFly(squareA, bitB) & bishopAttacksOnTheFly(squareB, bitA);
+                    lines[a * 64 + b] = (bishopAttacksOnTheFly(squareA, 0L) & bishopAttacksOnTheFly(squareB, 0L)) | bitA | bitB;
+                }
+            }
+        }
+    }
+
+    // fills in where every square's slice starts and returns the total table length
+    private static int initSliderOffsets(int[] offsets, int[] relevantBits) {
+        int offset = 0;
+
+        for (int square = 0; square < 64; square++) {
+            offsets[square] = offset;
+            offset += 1 << relevantBits[square];
+        }
+
+        return offset;
+    }
+
+    static long setOccupancy(int index, int bitsInMask, long attackMask) {
+        long occupancy = 0;
+
+        for (int count = 0; count < bitsInMask; count++) {
+            int square = Long.numberOfTrailingZeros(attackMask);
+            attackMask &= attackMask - 1;
+
+            if ((index & (1 << count)) != 0) {
+                occupancy |= (1L << square);
+            }
+        }
+
+        return occupancy;
+    }
+
+    private void initSliderMasks() {
+        for (int square = 0; square < 64; square++) {
+            bishopMasks[square] = maskBishopAttacks(SquareEnum.intToSquare(square));
+            rookMasks[square] = maskRookAttacks(SquareEnum.intToSquare(square));
+        }
+    }
+
+    private void initSlidersAttacks(boolean bishop) {
+        for (int square = 0; square < 64; square++) {
+            long attack_mask = bishop ? bishopMasks[square] : rookMasks[square];
+
+            int relevant_bits_count = Long.bitCount(attack_mask);
+            int occupancyIndices = (1 << relevant_bits_count);
+
+            for (int index = 0; index < occupancyIndices; index++) {
+                long occupancy = setOccupancy(index, relevant_bits_count, attack_mask);
+
+                if (bishop) {
+                    int magicIndex =
+                        (int) ((occupancy * BISHOP_MAGIC_NUMBERS[square]) >>> (64 - BISHOP_RELEVANT_BITS[square]));
+
+                    bishopAttacks[bishopOffsets[square] + magicIndex] =
+                        bishopAttacksOnTheFly(SquareEnum.intToSquare(square), occupancy);
+                } else {
+                    int magicIndex =
+                        (int) ((occupancy * ROOK_MAGIC_NUMBERS[square]) >>> (64 - ROOK_RELEVANT_BITS[square]));
+
+                    rookAttacks[rookOffsets[square] + magicIndex] =
+                        rookAttacksOnTheFly(SquareEnum.intToSquare(square), occupancy);
+                }
+            }
+        }
+    }
+}
@@ -9,19 +9,38 @@ import java.util.Map;
 public class Board {
 
     private final long[] bitboards;
+    // shared read-only attack tables, see AttackTables
     private final long[][] pawnAttacks;
     private final long[] knightAttacks;
     private final long[] kingAttacks;
     private final long[] bishopMasks;
     private final long[] rookMasks;
-    private final long[][] bishopAttacks;
-    private final long[][] rookAttacks;
+    private final int[] bishopOffsets;
+    private final int[] rookOffsets;
+    private final long[] bishopAttacks;
+    private final long[] rookAttacks;
+    private final long[] squaresBetween;
+    private final long[] lines;
     private final long[] occupancies;
 
     private int side;
     private SquareEnum enpassant;
     private int castle;
 
+    // undo stack for unmakeMove, one entry per ply played with makeMove, doubled when a game outgrows it
+    private static final int INITIAL_PLY = 256;
+    private int[] undoCaptured;
+    private int[] undoCastle;
+    private SquareEnum[] undoEnpassant;
+    private long[] undoHash;
+    private int ply;
+
+    // scratch move list for parseMove
+    private final Moves parseMoveList = new Moves();
+
+    // zobrist key of the current position, updated incrementally by makeMove
+    private long hash;
+
     // castling rights masks
     private static final int WK = 1;
     private static final int WQ = 2;
@@ -32,10 +51,29 @@ public class Board {
     public static final int SIDE_BLACK = 1;
     public static final int SIDE_BOTH = 2;
 
-    private static final long NOT_A_FILE = 0xFEFEFEFEFEFEFEFEL;
-    private static final long NOT_H_FILE = 0x7F7F7F7F7F7F7F7FL;
-    private static final long NOT_HG_FILE = 0x3F3F3F3F3F3F3F3FL;
-    private static final long NOT_AB_FILE = 0xFCFCFCFCFCFCFCFCL;
+    // primitive piece and square indices for the move generator's inner loops
+    private static final int PIECE_WHITE_PAWN = PieceEnum.P.ordinal();
+    private static final int PIECE_BLACK_PAWN = PieceEnum.p.ordinal();
+
+    private static final int SQUARE_C1 = SquareEnum.C1.ordinal();
+    private static final int SQUARE_D1 = SquareEnum.D1.ordinal();
+    private static final int SQUARE_E1 = SquareEnum.E1.ordinal();
+    private static final int SQUARE_F1 = SquareEnum.F1.ordinal();
+    private static final int SQUARE_G1 = SquareEnum.G1.ordinal();
+    private static final int SQUARE_C8 = SquareEnum.C8.ordinal();
+    private static final int SQUARE_D8 = SquareEnum.D8.ordinal();
+    private static final int SQUARE_E8 = SquareEnum.E8.ordinal();
+    private static final int SQUARE_F8 = SquareEnum.F8.ordinal();
+    private static final int SQUARE_G8 = SquareEnum.G8.ordinal();
+
+    private static final long RANK_2 = 0x000000000000FF00L;
+    private static final long RANK_7 = 0x00FF000000000000L;
+
+    // squares that must be empty to castle
+    private static final long WHITE_KING_SIDE_PATH = (1L << SQUARE_F1) | (1L << SQUARE_G1);
+    private static final long WHITE_QUEEN_SIDE_PATH = (1L << SquareEnum.B1.ordinal()) | (1L << SQUARE_C1) | (1L << SQUARE_D1);
+    private static final long BLACK_KING_SIDE_PATH = (1L << SQUARE_F8) | (1L << SQUARE_G8);
+    private static final long BLACK_QUEEN_SIDE_PATH = (1L << SquareEnum.B8.ordinal()) | (1L << SQUARE_C8) | (1L << SQUARE_D8);
 
     private static final Map<Character, PieceEnum> CHAR_PIECES = new HashMap<>();
     static {
@@ -53,171 +91,53 @@ public class Board {
         CHAR_PIECES.put('k', com.iro.board.PieceEnum.k);
     }
 
+    // zobrist keys: one per piece and square, per enpassant square, per castling rights value and for
+    // black to move
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long[] ENPASSANT_KEYS = new long[64];
+    private static final long[] CASTLE_KEYS = new long[16];
+    private static final long SIDE_KEY;
+    static {
+        // xorshift64* with a fixed seed so keys are the same on every run
+        long seed = 70026072L;
+
+        for (long[] squareKeys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                seed = nextRandom(seed);
+                squareKeys[square] = seed * 2685821657736338717L;
+            }
+        }
+
+        for (int square = 0; square < 64; square++) {
+            seed = nextRandom(seed);
+            ENPASSANT_KEYS[square] = seed * 2685821657736338717L;
+        }
+
+        for (int rights = 0; rights < 16; rights++) {
+            seed = nextRandom(seed);
+            CASTLE_KEYS[rights] = seed * 2685821657736338717L;
+        }
+
+        seed = nextRandom(seed);
+        SIDE_KEY = seed * 2685821657736338717L;
+    }
+
+    private static long nextRandom(long seed) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed;
+    }
+
     private static final int[] CASTLING_RIGHTS = {
-        7, 15, 15, 15,  3, 15, 15, 11,
+        13, 15, 15, 15, 12, 15, 15, 14,
         15, 15, 15, 15, 15, 15, 15, 15,
         15, 15, 15, 15, 15, 15, 15, 15,
         15, 15, 15, 15, 15, 15, 15, 15,
         15, 15, 15, 15, 15, 15, 15, 15,
         15, 15, 15, 15, 15, 15, 15, 15,
         15, 15, 15, 15, 15, 15, 15, 15,
-        13, 15, 15, 15, 12, 15, 15, 14
-    };
-
-    private static final int[] BISHOP_RELEVANT_BITS = {
-        6, 5, 5, 5, 5, 5, 5, 6,
-        5, 5, 5, 5, 5, 5, 5, 5,
-        5, 5, 7, 7, 7, 7, 5, 5,
-        5, 5, 7, 9, 9, 7, 5, 5,
-        5, 5, 7, 9, 9, 7, 5, 5,
-        5, 5, 7, 7, 7, 7, 5, 5,
-        5, 5, 5, 5, 5, 5, 5, 5,
-        6, 5, 5, 5, 5, 5, 5, 6
-    };
-
-    private static final int[] ROOK_RELEVANT_BITS = {
-        12, 11, 11, 11, 11, 11, 11, 12,
-        11, 10, 10, 10, 10, 10, 10, 11,
-        11, 10, 10, 10, 10, 10, 10, 11,
-        11, 10, 10, 10, 10, 10, 10, 11,
-        11, 10, 10, 10, 10, 10, 10, 11,
-        11, 10, 10, 10, 10, 10, 10, 11,
-        11, 10, 10, 10, 10, 10, 10, 11,
-        12, 11, 11, 11, 11, 11, 11, 12
-    };
-
-    private static final long[] ROOK_MAGIC_NUMBERS = {
-        0x8a80104000800020L,
-        0x140002000100040L,
-        0x2801880a0017001L,
-        0x100081001000420L,
-        0x200020010080420L,
-        0x3001c0002010008L,
-        0x8480008002000100L,
-        0x2080088004402900L,
-        0x800098204000L,
-        0x2024401000200040L,
-        0x100802000801000L,
-        0x120800800801000L,
-        0x208808088000400L,
-        0x2802200800400L,
-        0x2200800100020080L,
-        0x801000060821100L,
-        0x80044006422000L,
-        0x100808020004000L,
-        0x12108a0010204200L,
-        0x140848010000802L,
-        0x481828014002800L,
-        0x8094004002004100L,
-        0x4010040010010802L,
-        0x20008806104L,
-        0x100400080208000L,
-        0x2040002120081000L,
-        0x21200680100081L,
-        0x20100080080080L,
-        0x2000a00200410L,
-        0x20080800400L,
-        0x80088400100102L,
-        0x80004600042881L,
-        0x4040008040800020L,
-        0x440003000200801L,
-        0x4200011004500L,
-        0x188020010100100L,
-        0x14800401802800L,
-        0x2080040080800200L,
-        0x124080204001001L,
-        0x200046502000484L,
-        0x480400080088020L,
-        0x1000422010034000L,
-        0x30200100110040L,
-        0x100021010009L,
-        0x2002080100110004L,
-        0x202008004008002L,
-        0x20020004010100L,
-        0x2048440040820001L,
-        0x101002200408200L,
-        0x40802000401080L,
-        0x4008142004410100L,
-        0x2060820c0120200L,
-        0x1001004080100L,
-        0x20c020080040080L,
-        0x2935610830022400L,
-        0x44440041009200L,
-        0x280001040802101L,
-        0x2100190040002085L,
-        0x80c0084100102001L,
-        0x4024081001000421L,
-        0x20030a0244872L,
-        0x12001008414402L,
-        0x2006104900a0804L,
-        0x1004081002402L
-    };
-
-    private static final long[] BISHOP_MAGIC_NUMBERS = {
-        0x40040844404084L,
-        0x2004208a004208L,
-        0x10190041080202L,
-        0x108060845042010L,
-        0x581104180800210L,
-        0x2112080446200010L,
-        0x1080820820060210L,
-        0x3c0808410220200L,
-        0x4050404440404L,
-        0x21001420088L,
-        0x24d0080801082102L,
-        0x1020a0a020400L,
-        0x40308200402L,
-        0x4011002100800L,
-        0x401484104104005L,
-        0x801010402020200L,
-        0x400210c3880100L,
-        0x404022024108200L,
-        0x810018200204102L,
-        0x4002801a02003L,
-        0x85040820080400L,
-        0x810102c808880400L,
-        0xe900410884800L,
-        0x8002020480840102L,
-        0x220200865090201L,
-        0x2010100a02021202L,
-        0x152048408022401L,
-        0x20080002081110L,
-        0x4001001021004000L,
-        0x800040400a011002L,
-        0xe4004081011002L,
-        0x1c004001012080L,
-        0x8004200962a00220L,
-        0x8422100208500202L,
-        0x2000402200300c08L,
-        0x8646020080080080L,
-        0x80020a0200100808L,
-        0x2010004880111000L,
-        0x623000a080011400L,
-        0x42008c0340209202L,
-        0x209188240001000L,
-        0x400408a884001800L,
-        0x110400a6080400L,
-        0x1840060a44020800L,
-        0x90080104000041L,
-        0x201011000808101L,
-        0x1a2208080504f080L,
-        0x8012020600211212L,
-        0x500861011240000L,
-        0x180806108200800L,
-        0x4000020e01040044L,
-        0x300000261044000aL,
-        0x802241102020002L,
-        0x20906061210001L,
-        0x5a84841004010310L,
-        0x4010801011c04L,
-        0xa010109502200L,
-        0x4a02012000L,
-        0x500201010098b028L,
-        0x8040002811040900L,
-        0x28000010020204L,
-        0x6000020202d0240L,
-        0x8918844842082200L,
-        0x4010011029020020L
+        7, 15, 15, 15,  3, 15, 15, 11
     };
 
     public static final String START_POSITION =
@@ -225,22 +145,28 @@ public class Board {
 
     public Board() {
         bitboards = new long[12];
-        pawnAttacks = new long[2][64];
-        knightAttacks = new long[64];
-        kingAttacks = new long[64];
-        bishopMasks = new long[64];
-        rookMasks = new long[64];
-        bishopAttacks = new long[64][512];
-        rookAttacks = new long[64][4096];
+        AttackTables tables = AttackTables.get();
+        pawnAttacks = tables.pawnAttacks;
+        knightAttacks = tables.knightAttacks;
+        kingAttacks = tables.kingAttacks;
+        bishopMasks = tables.bishopMasks;
+        rookMasks = tables.rookMasks;
+        bishopOffsets = tables.bishopOffsets;
+        rookOffsets = tables.rookOffsets;
+        bishopAttacks = tables.bishopAttacks;
+        rookAttacks = tables.rookAttacks;
+        squaresBetween = tables.squaresBetween;
+        lines = tables.lines;
         occupancies = new long[3];
 
+        undoCaptured = new int[INITIAL_PLY];
+        undoCastle = new int[INITIAL_PLY];
+        undoEnpassant = new SquareEnum[INITIAL_PLY];
+        undoHash = new long[INITIAL_PLY];
+
         side = SIDE_WHITE;
         enpassant = SquareEnum.NO_SQUARE;
 
-        initLeaperAttacks();
-        initSlidersAttacks(true);
-        initSlidersAttacks(false);
-
         parseFen(START_POSITION);
     }
 
@@ -256,8 +182,16 @@ public class Board {
         return bitboard & (1L << square.ordinal());
     }
 
+    private void growUndoStack() {
+        int length = undoHash.length * 2;
+        undoCaptured = Arrays.copyOf(undoCaptured, length);
+        undoCastle = Arrays.copyOf(undoCastle, length);
+        undoEnpassant = Arrays.copyOf(undoEnpassant, length);
+        undoHash = Arrays.copyOf(undoHash, length);
+    }
+
     public BoardState copyBoard() {
-        return new BoardState(bitboards, occupancies, side, enpassant, castle);
+        return new BoardState(bitboards, occupancies, side, enpassant, castle, ply, hash);
     }
 
     public void takeBack(BoardState state) {
@@ -266,326 +200,40 @@ public class Board {
         side = state.side_copy;
         enpassant = state.enpassant_copy;
         castle = state.castle_copy;
+        ply = state.ply_copy;
+        hash = state.hash_copy;
     }
 
     private int countBits(long bitboard) {
-        int count = 0;
-
-        while (bitboard != 0) {
-            ++count;
-
-            bitboard &= bitboard - 1;
-        }
-
-        return count;
+        return Long.bitCount(bitboard);
     }
 
     public int getLsbIndex(long bitboard) {
         if (bitboard != 0) {
-            return countBits((bitboard & -bitboard) - 1);
+            return Long.numberOfTrailingZeros(bitboard);
         } else {
             return -1;
         }
     }
 
-    private long maskPawnAttacks(int side, SquareEnum square) {
-        long attacks = 0;
-        long bitboard = 0;
-
-        bitboard = setBit(bitboard, square);
-
-        if (side == SIDE_WHITE) {
-            if (((bitboard >>> 7) & NOT_A_FILE) != 0) {
-                attacks |= (bitboard >>> 7);
-            }
-            if (((bitboard >>> 9) & NOT_H_FILE) != 0) {
-                attacks |= (bitboard >>> 9);
-            }
-        } else {
-            if (((bitboard << 7) & NOT_H_FILE) != 0) {
-                attacks |= (bitboard << 7);
-            }
-            if (((bitboard << 9) & NOT_A_FILE) != 0) {
-                attacks |= (bitboard << 9);
-            }
-        }
-
-        return attacks;
-    }
-
-    private long maskKnightAttacks(SquareEnum square) {
-        long attacks = 0;
-        long bitboard = 0;
-
-        bitboard = setBit(bitboard, square);
-
-        if (((bitboard >>> 17) & NOT_H_FILE) != 0) {
-            attacks |= (bitboard >>> 17);
-        }
-        if (((bitboard >>> 15) & NOT_A_FILE) != 0) {
-            attacks |= (bitboard >>> 15);
-        }
-        if (((bitboard >>> 10) & NOT_HG_FILE) != 0) {
-            attacks |= (bitboard >>> 10);
-        }
-        if (((bitboard >>> 6) & NOT_AB_FILE) != 0) {
-            attacks |= (bitboard >>> 6);
-        }
-        if (((bitboard << 17) & NOT_A_FILE) != 0) {
-            attacks |= (bitboard << 17);
-        }
-        if (((bitboard << 15) & NOT_H_FILE) != 0) {
-            attacks |= (bitboard << 15);
-        }
-        if (((bitboard << 10) & NOT_AB_FILE) != 0) {
-            attacks |= (bitboard << 10);
-        }
-        if (((bitboard << 6) & NOT_HG_FILE) != 0) {
-            attacks |= (bitboard << 6);
-        }
-
-        return attacks;
-    }
-
-    private long maskKingAttacks(SquareEnum square) {
-        long attacks = 0;
-        long bitboard = 0;
-
-        bitboard = setBit(bitboard, square);
-
-        if ((bitboard >>> 8) != 0) {
-            attacks |= (bitboard >>> 8);
-        }
-        if (((bitboard >>> 9) & NOT_H_FILE) != 0) {
-            attacks |= (bitboard >>> 9);
-        }
-        if (((bitboard >>> 7) & NOT_A_FILE) != 0) {
-            attacks |= (bitboard >>> 7);
-        }
-        if (((bitboard >>> 1) & NOT_H_FILE) != 0) {
-            attacks |= (bitboard >>> 1);
-        }
-        if ((bitboard << 8) != 0) {
-            attacks |= (bitboard << 8);
-        }
-        if (((bitboard << 9) & NOT_A_FILE) != 0) {
-            attacks |= (bitboard << 9);
-        }
-        if (((bitboard << 7) & NOT_H_FILE) != 0) {
-            attacks |= (bitboard << 7);
-        }
-        if (((bitboard << 1) & NOT_A_FILE) != 0) {
-            attacks |= (bitboard << 1);
-        }
-
-        return attacks;
-    }
-
-    private long maskBishopAttacks(SquareEnum square) {
-        long attacks = 0;
-
-        int rank;
-        int file;
-        int targetRank = square.ordinal() / 8;
-        int targetFile = square.ordinal() % 8;
-
-        for (rank = targetRank + 1, file = targetFile + 1; rank <= 6 && file <= 6; rank++, file++) {
-            attacks |= (1L << (rank * 8 + file));
-        }
-        for (rank = targetRank - 1, file = targetFile + 1; rank >= 1 && file <= 6; rank--, file++) {
-            attacks |= (1L << (rank * 8 + file));
-        }
-        for (rank = targetRank + 1, file = targetFile - 1; rank <= 6 && file >= 1; rank++, file--) {
-            attacks |= (1L << (rank * 8 + file));
-        }
-        for (rank = targetRank - 1, file = targetFile - 1; rank >= 1 && file >= 1; rank--, file--) {
-            attacks |= (1L << (rank * 8 + file));
-        }
-
-        return attacks;
-    }
-
-    private long maskRookAttacks(SquareEnum square) {
-        long attacks = 0;
-
-        int rank;
-        int file;
-        int targetRank = square.ordinal() / 8;
-        int targetFile = square.ordinal() % 8;
-
-        for (rank = targetRank + 1; rank <= 6; rank++) {
-            attacks |= (1L << (rank * 8 + targetFile));
-        }
-        for (rank = targetRank - 1; rank >= 1; rank--) {
-            attacks |= (1L << (rank * 8 + targetFile));
-        }
-        for (file = targetFile + 1; file <= 6; file++) {
-            attacks |= (1L << (targetRank * 8 + file));
-        }
-        for (file = targetFile - 1; file >= 1; file--) {
-            attacks |= (1L << (targetRank * 8 + file));
-        }
-
-        return attacks;
-    }
-
-    private long bishopAttacksOnTheFly(SquareEnum square, long block) {
-        long attacks = 0;
-
-        int rank;
-        int file;
-        int targetRank = square.ordinal() / 8;
-        int targetFile = square.ordinal() % 8;
-
-        for (rank = targetRank + 1, file = targetFile + 1; rank <= 7 && file <= 7; ++rank, ++file) {
-            attacks |= (1L << (rank * 8 + file));
-            if (((1L << (rank * 8 + file)) & block) != 0) {
-                break;
-            }
-        }
-
-        for (rank = targetRank - 1, file = targetFile + 1; rank >= 0 && file <= 7; --rank, ++file) {
-            attacks |= (1L << (rank * 8 + file));
-            if (((1L << (rank * 8 + file)) & block) != 0) {
-                break;
-            }
-        }
-
-        for (rank = targetRank + 1, file = targetFile - 1; rank <= 7 && file >= 0; ++rank, --file) {
-            attacks |= (1L << (rank * 8 + file));
-            if (((1L << (rank * 8 + file)) & block) != 0) {
-                break;
-            }
-        }
-
-        for (rank = targetRank - 1, file = targetFile - 1; rank >= 0 && file >= 0; --rank, --file) {
-            attacks |= (1L << (rank * 8 + file));
-            if (((1L << (rank * 8 + file)) & block) != 0) {
-                break;
-            }
-        }
-
-        return attacks;
-    }
-
-    private long rookAttacksOnTheFly(SquareEnum square, long block) {
-        long attacks = 0;
-
-        int rank;
-        int file;
-        int targetRank = square.ordinal() / 8;
-        int targetFile = square.ordinal() % 8;
-
-        for (rank = targetRank + 1; rank <= 7; ++rank) {
-            attacks |= (1L << (rank * 8 + targetFile));
-            if (((1L << (rank * 8 + targetFile)) & block) != 0) {
-                break;
-            }
-        }
-
-        for (rank = targetRank - 1; rank >= 0; --rank) {
-            attacks |= (1L << (rank * 8 + targetFile));
-            if (((1L << (rank * 8 + targetFile)) & block) != 0) {
-                break;
-            }
-        }
-
-        for (file = targetFile + 1; file <= 7; ++file) {
-            attacks |= (1L << (targetRank * 8 + file));
-            if (((1L << (targetRank * 8 + file)) & block) != 0) {
-                break;
-            }
-        }
-
-        for (file = targetFile - 1; file >= 0; --file) {
-            attacks |= (1L << (targetRank * 8 + file));
-            if (((1L << (targetRank * 8 + file)) & block) != 0) {
-                break;
-            }
-        }
-
-        return attacks;
-    }
-
-    private void initLeaperAttacks() {
-        for (int square = 0; square < 64; square++) {
-            pawnAttacks[SIDE_WHITE][square] =
-                maskPawnAttacks(SIDE_WHITE, SquareEnum.intToSquare(square));
-            pawnAttacks[SIDE_BLACK][square] =
-                maskPawnAttacks(SIDE_BLACK, SquareEnum.intToSquare(square));
-
-            knightAttacks[square] = maskKnightAttacks(SquareEnum.intToSquare(square));
-
-            kingAttacks[square] = maskKingAttacks(SquareEnum.intToSquare(square));
-        }
-    }
-
-    private long setOccupancy(int index, int bitsInMask, long attackMask) {
-        long occupancy = 0;
-
-        for (int count = 0; count < bitsInMask; count++) {
-            SquareEnum square = SquareEnum.intToSquare(getLsbIndex(attackMask));
-            attackMask = popBit(attackMask, square);
-
-            if ((index & (1 << count)) != 0) {
-                occupancy |= (1L << square.ordinal());
-            }
-        }
-
-        return occupancy;
-    }
-
-    private void initSlidersAttacks(boolean bishop) {
-        for (int square = 0; square < 64; square++) {
-            bishopMasks[square] = maskBishopAttacks(SquareEnum.intToSquare(square));
-            rookMasks[square] = maskRookAttacks(SquareEnum.intToSquare(square));
-
-            long attack_mask = bishop ? bishopMasks[square] : rookMasks[square];
-
-            int relevant_bits_count = countBits(attack_mask);
-            int occupancyIndices = (1 << relevant_bits_count);
-
-            for (int index = 0; index < occupancyIndices; index++) {
-                if (bishop) {
-                    long occupancy = setOccupancy(index, relevant_bits_count, attack_mask);
-
-                    int magicIndex =
-                        (int) ((occupancy * BISHOP_MAGIC_NUMBERS[square]) >>> (64 - BISHOP_RELEVANT_BITS[square]));
-
-                    bishopAttacks[square][magicIndex] =
-                        bishopAttacksOnTheFly(SquareEnum.intToSquare(square),
-                        occupancy);
-                } else {
-                    long occupancy = setOccupancy(index, relevant_bits_count, attack_mask);
-
-                    int magic_index =
-                        (int) ((occupancy * ROOK_MAGIC_NUMBERS[square]) >>> (64 - ROOK_RELEVANT_BITS[square]));
-
-                    rookAttacks[square][magic_index] = rookAttacksOnTheFly(SquareEnum.intToSquare(square),
-                        occupancy);
-                }
-            }
-        }
-    }
-
     private long getBishopAttacks(int square, long occupancy) {
         // get bishop attacks assuming current board occupancy
         occupancy &= bishopMasks[square];
-        occupancy *= BISHOP_MAGIC_NUMBERS[square];
-        occupancy >>>= 64 - BISHOP_RELEVANT_BITS[square];
+        occupancy *= AttackTables.BISHOP_MAGIC_NUMBERS[square];
+        occupancy >>>= 64 - AttackTables.BISHOP_RELEVANT_BITS[square];
 
         // return bishop attacks
-        return bishopAttacks[square][(int) occupancy];
+        return bishopAttacks[bishopOffsets[square] + (int) occupancy];
     }
 
     private long getRookAttacks(int square, long occupancy) {
         // get rook attacks assuming current board occupancy
         occupancy &= rookMasks[square];
-        occupancy *= ROOK_MAGIC_NUMBERS[square];
-        occupancy >>>= 64 - ROOK_RELEVANT_BITS[square];
+        occupancy *= AttackTables.ROOK_MAGIC_NUMBERS[square];
+        occupancy >>>= 64 - AttackTables.ROOK_RELEVANT_BITS[square];
 
         // return rook attacks
-        return rookAttacks[square][(int) occupancy];
+        return rookAttacks[rookOffsets[square] + (int) occupancy];
     }
 
     private long getQueenAttacks(int square, long occupancy) {
@@ -596,17 +244,17 @@ public class Board {
 
         // get bishop attacks assuming current board occupancy
         bishopOccupancy &= bishopMasks[square];
-        bishopOccupancy *= BISHOP_MAGIC_NUMBERS[square];
-        bishopOccupancy >>>= 64 - BISHOP_RELEVANT_BITS[square];
+        bishopOccupancy *= AttackTables.BISHOP_MAGIC_NUMBERS[square];
+        bishopOccupancy >>>= 64 - AttackTables.BISHOP_RELEVANT_BITS[square];
 
-        queenAttacks = bishopAttacks[square][(int) bishopOccupancy];
+        queenAttacks = bishopAttacks[bishopOffsets[square] + (int) bishopOccupancy];
 
         // get rook attacks assuming current board occupancy
         rookOccupancy &= rookMasks[square];
-        rookOccupancy *= ROOK_MAGIC_NUMBERS[square];
-        rookOccupancy >>>= 64 - ROOK_RELEVANT_BITS[square];
+        rookOccupancy *= AttackTables.ROOK_MAGIC_NUMBERS[square];
+        rookOccupancy >>>= 64 - AttackTables.ROOK_RELEVANT_BITS[square];
 
-        queenAttacks |= rookAttacks[square][(int) rookOccupancy];
+        queenAttacks |= rookAttacks[rookOffsets[square] + (int) rookOccupancy];
 
         return queenAttacks;
     }
@@ -676,7 +324,12 @@ public class Board {
 
     public int encodeMove(int source, int target, PieceEnum piece, int promotedPiece,
                            int capture, int doublePush, int enpassant, int castling) {
-        return (source) | (target << 6) | (piece.ordinal() << 12) | (promotedPiece << 16) |
+        return encodeMove(source, target, piece.ordinal(), promotedPiece, capture, doublePush, enpassant, castling);
+    }
+
+    private static int encodeMove(int source, int target, int piece, int promotedPiece,
+                                  int capture, int doublePush, int enpassant, int castling) {
+        return (source) | (target << 6) | (piece << 12) | (promotedPiece << 16) |
             (capture << 20) | (doublePush << 21) | (enpassant << 22) | (castling << 23);
     }
 
@@ -715,8 +368,14 @@ public class Board {
     public boolean makeMove(int move, MoveTypeEnum move_flag) {
         // quiet moves
         if (move_flag == MoveTypeEnum.ALL_MOVES) {
-            // preserve board state
-            BoardState boardState = copyBoard();
+            // preserve the state that can't be recovered from the move itself
+            if (ply == undoHash.length) {
+                growUndoStack();
+            }
+            undoCastle[ply] = castle;
+            undoEnpassant[ply] = enpassant;
+            undoCaptured[ply] = -1;
+            undoHash[ply] = hash;
 
             // parse move
             SquareEnum source_square = getMoveSource(move);
@@ -732,6 +391,10 @@ public class Board {
             bitboards[piece.ordinal()] = popBit(bitboards[piece.ordinal()], source_square);
             bitboards[piece.ordinal()] = setBit(bitboards[piece.ordinal()], target_square);
 
+            // hash piece
+            hash ^= PIECE_KEYS[piece.ordinal()][source_square.ordinal()];
+            hash ^= PIECE_KEYS[piece.ordinal()][target_square.ordinal()];
+
             // handling capture moves
             if (capture) {
                 // pick up bitboard piece index ranges depending on side
@@ -754,6 +417,10 @@ public class Board {
                     if (getBit(bitboards[bb_piece], target_square) != 0) {
                         // remove it from corresponding bitboard
                         bitboards[bb_piece] = popBit(bitboards[bb_piece], target_square);
+                        undoCaptured[ply] = bb_piece;
+
+                        // remove the captured piece from the hash
+                        hash ^= PIECE_KEYS[bb_piece][target_square.ordinal()];
 
                         break;
                     }
@@ -769,16 +436,19 @@ public class Board {
                     // erase the pawn from the target square
                     bitboards[PieceEnum.P.ordinal()] = popBit(bitboards[PieceEnum.P.ordinal()],
                         target_square);
+                    hash ^= PIECE_KEYS[PieceEnum.P.ordinal()][target_square.ordinal()];
                 } else {
                     // black to move
                     // erase the pawn from the target square
                     bitboards[PieceEnum.p.ordinal()] = popBit(bitboards[PieceEnum.p.ordinal()],
                         target_square);
+                    hash ^= PIECE_KEYS[PieceEnum.p.ordinal()][target_square.ordinal()];
                 }
 
                 // set up promoted piece on chess board
                 bitboards[promoted_piece.ordinal()] = setBit(bitboards[promoted_piece.ordinal()],
                     target_square);
+                hash ^= PIECE_KEYS[promoted_piece.ordinal()][target_square.ordinal()];
             }
 
             // handle enpassant captures
@@ -789,16 +459,22 @@ public class Board {
                 if (side == SIDE_WHITE) {
                     // remove captured pawn
                     bitboards[PieceEnum.p.ordinal()] = popBit(bitboards[PieceEnum.p.ordinal()],
-                        SquareEnum.intToSquare(target_square.ordinal() + 8));
+                        SquareEnum.intToSquare(target_square.ordinal() - 8));
+                    hash ^= PIECE_KEYS[PieceEnum.p.ordinal()][target_square.ordinal() - 8];
                 } else {
                     // black to move
                     // remove captured pawn
                     bitboards[PieceEnum.P.ordinal()] = popBit(bitboards[PieceEnum.P.ordinal()],
-                        SquareEnum.intToSquare(target_square.ordinal() - 8));
+                        SquareEnum.intToSquare(target_square.ordinal() + 8));
+                    hash ^= PIECE_KEYS[PieceEnum.P.ordinal()][target_square.ordinal() + 8];
                 }
             }
 
-            // reset enpassant square
+            // hash out the old enpassant square, then reset it
+            if (enpassant != SquareEnum.NO_SQUARE) {
+                hash ^= ENPASSANT_KEYS[enpassant.ordinal()];
+            }
+
             enpassant = SquareEnum.NO_SQUARE;
 
             // handle double pawn push
@@ -808,12 +484,14 @@ public class Board {
                 // white to move
                 if (side == SIDE_WHITE) {
                     // set enpassant square
-                    enpassant = SquareEnum.intToSquare(target_square.ordinal() + 8);
+                    enpassant = SquareEnum.intToSquare(target_square.ordinal() - 8);
                 } else {
                     // black to move
                     // set enpassant square
-                    enpassant = SquareEnum.intToSquare(target_square.ordinal() - 8);
+                    enpassant = SquareEnum.intToSquare(target_square.ordinal() + 8);
                 }
+
+                hash ^= ENPASSANT_KEYS[enpassant.ordinal()];
             }
 
             // handle castling moves
@@ -827,6 +505,8 @@ public class Board {
                             popBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.H1);
                         bitboards[PieceEnum.R.ordinal()] =
                             setBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.F1);
+                        hash ^= PIECE_KEYS[PieceEnum.R.ordinal()][SquareEnum.H1.ordinal()];
+                        hash ^= PIECE_KEYS[PieceEnum.R.ordinal()][SquareEnum.F1.ordinal()];
                         break;
 
                     // white castles queen side
@@ -836,6 +516,8 @@ public class Board {
                             popBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.A1);
                         bitboards[PieceEnum.R.ordinal()] =
                             setBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.D1);
+                        hash ^= PIECE_KEYS[PieceEnum.R.ordinal()][SquareEnum.A1.ordinal()];
+                        hash ^= PIECE_KEYS[PieceEnum.R.ordinal()][SquareEnum.D1.ordinal()];
                         break;
 
                     // black castles king side
@@ -845,6 +527,8 @@ public class Board {
                             popBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.H8);
                         bitboards[PieceEnum.r.ordinal()] =
                             setBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.F8);
+                        hash ^= PIECE_KEYS[PieceEnum.r.ordinal()][SquareEnum.H8.ordinal()];
+                        hash ^= PIECE_KEYS[PieceEnum.r.ordinal()][SquareEnum.F8.ordinal()];
                         break;
 
                     // black castles queen side
@@ -854,39 +538,25 @@ public class Board {
                             popBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.A8);
                         bitboards[PieceEnum.r.ordinal()] =
                             setBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.D8);
+                        hash ^= PIECE_KEYS[PieceEnum.r.ordinal()][SquareEnum.A8.ordinal()];
+                        hash ^= PIECE_KEYS[PieceEnum.r.ordinal()][SquareEnum.D8.ordinal()];
                         break;
                 }
             }
 
             // update castling rights
+            hash ^= CASTLE_KEYS[castle];
             castle &= CASTLING_RIGHTS[source_square.ordinal()];
             castle &= CASTLING_RIGHTS[target_square.ordinal()];
+            hash ^= CASTLE_KEYS[castle];
 
-            // reset occupancies
-            Arrays.fill(occupancies, 0L);
-
-            // update white occupancies
-            occupancies[SIDE_WHITE] |= bitboards[PieceEnum.P.ordinal()];
-            occupancies[SIDE_WHITE] |= bitboards[PieceEnum.N.ordinal()];
-            occupancies[SIDE_WHITE] |= bitboards[PieceEnum.B.ordinal()];
-            occupancies[SIDE_WHITE] |= bitboards[PieceEnum.R.ordinal()];
-            occupancies[SIDE_WHITE] |= bitboards[PieceEnum.Q.ordinal()];
-            occupancies[SIDE_WHITE] |= bitboards[PieceEnum.K.ordinal()];
-
-            // update black occupancies
-            occupancies[SIDE_BLACK] |= bitboards[PieceEnum.p.ordinal()];
-            occupancies[SIDE_BLACK] |= bitboards[PieceEnum.n.ordinal()];
-            occupancies[SIDE_BLACK] |= bitboards[PieceEnum.b.ordinal()];
-            occupancies[SIDE_BLACK] |= bitboards[PieceEnum.r.ordinal()];
-            occupancies[SIDE_BLACK] |= bitboards[PieceEnum.q.ordinal()];
-            occupancies[SIDE_BLACK] |= bitboards[PieceEnum.k.ordinal()];
-
-            // update both sides occupancies
-            occupancies[SIDE_BOTH] |= occupancies[SIDE_WHITE];
-            occupancies[SIDE_BOTH] |= occupancies[SIDE_BLACK];
+            // update occupancies
+            updateOccupancies();
 
             // change side
             side ^= 1;
+            hash ^= SIDE_KEY;
+            ply++;
 
             // make sure that king has not been exposed into a check
             if (isSquareAttacked(
@@ -894,7 +564,7 @@ public class Board {
                     getLsbIndex(bitboards[PieceEnum.k.ordinal()]) :
                     getLsbIndex(bitboards[PieceEnum.K.ordinal()]), side)) {
                 // take move back
-                takeBack(boardState);
+                unmakeMove(move);
 
                 // return illegal move
                 return false;
@@ -915,437 +585,479 @@ public class Board {
         }
     }
 
+    // takes back the last move played with makeMove, in place
+    public void unmakeMove(int move) {
+        ply--;
+
+        // side that played the move
+        side ^= 1;
+
+        // parse move
+        SquareEnum source_square = getMoveSource(move);
+        SquareEnum target_square = getMoveTarget(move);
+        PieceEnum piece = getMovePiece(move);
+        PieceEnum promoted_piece = getMovePromoted(move);
+
+        // lift the moved (or promoted) piece off the target square and put the piece back on its source
+        if (promoted_piece.ordinal() != 0) {
+            bitboards[promoted_piece.ordinal()] = popBit(bitboards[promoted_piece.ordinal()], target_square);
+        } else {
+            bitboards[piece.ordinal()] = popBit(bitboards[piece.ordinal()], target_square);
+        }
+        bitboards[piece.ordinal()] = setBit(bitboards[piece.ordinal()], source_square);
+
+        // restore captured piece
+        int captured = undoCaptured[ply];
+        if (captured != -1) {
+            bitboards[captured] = setBit(bitboards[captured], target_square);
+        }
+
+        // restore enpassant captured pawn
+        if (getMoveEnpassant(move)) {
+            if (side == SIDE_WHITE) {
+                bitboards[PieceEnum.p.ordinal()] = setBit(bitboards[PieceEnum.p.ordinal()],
+                    SquareEnum.intToSquare(target_square.ordinal() - 8));
+            } else {
+                bitboards[PieceEnum.P.ordinal()] = setBit(bitboards[PieceEnum.P.ordinal()],
+                    SquareEnum.intToSquare(target_square.ordinal() + 8));
+            }
+        }
+
+        // move the castling rook back
+        if (getMoveCastling(move)) {
+            switch (target_square) {
+                case SquareEnum.G1:
+                    bitboards[PieceEnum.R.ordinal()] =
+                        popBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.F1);
+                    bitboards[PieceEnum.R.ordinal()] =
+                        setBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.H1);
+                    break;
+
+                case SquareEnum.C1:
+                    bitboards[PieceEnum.R.ordinal()] =
+                        popBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.D1);
+                    bitboards[PieceEnum.R.ordinal()] =
+                        setBit(bitboards[PieceEnum.R.ordinal()], SquareEnum.A1);
+                    break;
+
+                case SquareEnum.G8:
+                    bitboards[PieceEnum.r.ordinal()] =
+                        popBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.F8);
+                    bitboards[PieceEnum.r.ordinal()] =
+                        setBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.H8);
+                    break;
+
+                case SquareEnum.C8:
+                    bitboards[PieceEnum.r.ordinal()] =
+                        popBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.D8);
+                    bitboards[PieceEnum.r.ordinal()] =
+                        setBit(bitboards[PieceEnum.r.ordinal()], SquareEnum.A8);
+                    break;
+            }
+        }
+
+        // restore irreversible state
+        castle = undoCastle[ply];
+        enpassant = undoEnpassant[ply];
+        hash = undoHash[ply];
+
+        updateOccupancies();
+    }
+
+    private void updateOccupancies() {
+        occupancies[SIDE_WHITE] = bitboards[PieceEnum.P.ordinal()] | bitboards[PieceEnum.N.ordinal()] |
+            bitboards[PieceEnum.B.ordinal()] | bitboards[PieceEnum.R.ordinal()] |
+            bitboards[PieceEnum.Q.ordinal()] | bitboards[PieceEnum.K.ordinal()];
+
+        occupancies[SIDE_BLACK] = bitboards[PieceEnum.p.ordinal()] | bitboards[PieceEnum.n.ordinal()] |
+            bitboards[PieceEnum.b.ordinal()] | bitboards[PieceEnum.r.ordinal()] |
+            bitboards[PieceEnum.q.ordinal()] | bitboards[PieceEnum.k.ordinal()];
+
+        occupancies[SIDE_BOTH] = occupancies[SIDE_WHITE] | occupancies[SIDE_BLACK];
+    }
+
     public void generateMoves(Moves moveList) {
         moveList.count = 0;
 
-        int sourceSquare;
-        int targetSquare;
+        // bitboard index of the side to move's pawn, its knight .. king follow in PieceEnum order
+        int pawn = (side == SIDE_WHITE) ? PIECE_WHITE_PAWN : PIECE_BLACK_PAWN;
 
-        // define current piece's bitboard copy & it's attacks
-        long bitboard;
-        long attacks;
+        long own = occupancies[side];
+        long enemy = occupancies[side ^ 1];
+        long both = occupancies[SIDE_BOTH];
 
-        for (PieceEnum piece: PieceEnum.values()) {
-            // init piece bitboard copy
-            bitboard = bitboards[piece.ordinal()];
+        generatePawnMoves(moveList, pawn, enemy, both);
 
-            // generateSIDE_WHITE pawns &SIDE_WHITE king castling moves
-            if (side == SIDE_WHITE) {
-                // pick upSIDE_WHITE pawn bitboards index
-                if (piece == PieceEnum.P) {
-                    // loop overSIDE_WHITE pawns withinSIDE_WHITE pawn bitboard
-                    while (bitboard != 0) {
-                        // init source square
-                        sourceSquare = getLsbIndex(bitboard);
-
-                        // init target square
-                        targetSquare = sourceSquare - 8;
-
-                        // generate quite pawn moves
-                        if (!(targetSquare < SquareEnum.A8.ordinal()) &&
-                            getBit(occupancies[SIDE_BOTH],
-                                SquareEnum.intToSquare(targetSquare)) == 0) {
-                            // pawn promotion
-                            if (sourceSquare >= SquareEnum.A7.ordinal() && sourceSquare <= SquareEnum.H7.ordinal()) {
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.Q.ordinal(), 0, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.R.ordinal(), 0, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.B.ordinal(), 0, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.N.ordinal(), 0, 0, 0, 0));
-                            } else {
-                                // one square ahead pawn move
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    0, 0, 0, 0, 0));
-
-                                // two squares ahead pawn move
-                                if ((sourceSquare >= SquareEnum.A2.ordinal() && sourceSquare <= SquareEnum.H2.ordinal()) &&
-                                        getBit(occupancies[SIDE_BOTH],
-                                            SquareEnum.intToSquare(targetSquare - 8)) == 0) {
-                                    addMove(moveList, encodeMove(sourceSquare, (targetSquare - 8), piece,
-                                        0, 0, 1, 0, 0));
-                                }
-
-                            }
-                        }
+        // knights, bishops, rooks and queens
+        for (int piece = pawn + 1; piece <= pawn + 4; piece++) {
+            long bitboard = bitboards[piece];
 
-                        // init pawn attacks bitboard
-                        attacks = pawnAttacks[side][sourceSquare] & occupancies[SIDE_BLACK];
-
-                        // generate pawn captures
-                        while (attacks != 0) {
-                            // init target square
-                            targetSquare = getLsbIndex(attacks);
-
-                            // pawn promotion
-                            if (sourceSquare >= SquareEnum.A7.ordinal() && sourceSquare <= SquareEnum.H7.ordinal()) {
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.Q.ordinal(), 1, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.R.ordinal(), 1, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.B.ordinal(), 1, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.N.ordinal(), 1, 0, 0, 0));
-                            } else {
-                                // one square ahead pawn capture
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    0, 1, 0, 0, 0));
-                            }
-
-                            // pop lsb of the pawn attacks
-                            attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
-                        }
+            while (bitboard != 0) {
+                int sourceSquare = Long.numberOfTrailingZeros(bitboard);
 
-                        // generate enpassant captures
-                        if (enpassant != SquareEnum.NO_SQUARE) {
-                            // lookup pawn attacks and bitwise AND with enpassant square (bit)
-                            long enpassantAttacks =
-                                pawnAttacks[side][sourceSquare] & (1L << enpassant.ordinal());
-
-                            // make sure enpassant capture available
-                            if (enpassantAttacks != 0) {
-                                // init enpassant capture target square
-                                int target_enpassant = getLsbIndex(enpassantAttacks);
-                                addMove(moveList, encodeMove(sourceSquare, target_enpassant, piece,
-                                    0, 1, 0, 1, 0));
-                            }
-                        }
+                long attacks;
+                switch (piece - pawn) {
+                    case 1: attacks = knightAttacks[sourceSquare]; break;
+                    case 2: attacks = getBishopAttacks(sourceSquare, both); break;
+                    case 3: attacks = getRookAttacks(sourceSquare, both); break;
+                    default: attacks = getQueenAttacks(sourceSquare, both); break;
+                }
+
+                addPieceMoves(moveList, sourceSquare, attacks & ~own, piece, enemy);
+
+                bitboard &= bitboard - 1;
+            }
+        }
+
+        // castling moves come before the other king moves
+        int king = pawn + 5;
+        generateCastlingMoves(moveList, king, both);
+
+        long bitboard = bitboards[king];
+        while (bitboard != 0) {
+            int sourceSquare = Long.numberOfTrailingZeros(bitboard);
+
+            addPieceMoves(moveList, sourceSquare, kingAttacks[sourceSquare] & ~own, king, enemy);
+
+            bitboard &= bitboard - 1;
+        }
+    }
+
+    private void generatePawnMoves(Moves moveList, int pawn, long enemy, long both) {
+        int forward = (side == SIDE_WHITE) ? 8 : -8;
+        long startRank = (side == SIDE_WHITE) ? RANK_2 : RANK_7;
+        long promotionRank = (side == SIDE_WHITE) ? RANK_7 : RANK_2;
+        long enpassantBit = (enpassant == SquareEnum.NO_SQUARE) ? 0L : 1L << enpassant.ordinal();
+        long[] attackTable = pawnAttacks[side];
+
+        long bitboard = bitboards[pawn];
+
+        while (bitboard != 0) {
+            int sourceSquare = Long.numberOfTrailingZeros(bitboard);
+            long sourceBit = bitboard & -bitboard;
+            boolean promotes = (sourceBit & promotionRank) != 0;
+
+            // quiet pawn moves
+            int targetSquare = sourceSquare + forward;
+            if (targetSquare >= 0 && targetSquare < 64 && (both & (1L << targetSquare)) == 0) {
+                if (promotes) {
+                    addPromotions(moveList, sourceSquare, targetSquare, pawn, 0);
+                } else {
+                    // one square ahead pawn move
+                    addMove(moveList, encodeMove(sourceSquare, targetSquare, pawn, 0, 0, 0, 0, 0));
 
-                        // pop lsb from piece bitboard copy
-                        bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
+                    // two squares ahead pawn move
+                    if ((sourceBit & startRank) != 0 && (both & (1L << (targetSquare + forward))) == 0) {
+                        addMove(moveList, encodeMove(sourceSquare, targetSquare + forward, pawn, 0, 0, 1, 0, 0));
                     }
                 }
+            }
 
-                // castling moves
-                if (piece == PieceEnum.K) {
-                    // king side castling is available
-                    if ((castle & WK) != 0) {
-                        // make sure square between king and king's rook are empty
-                        if (getBit(occupancies[SIDE_BOTH], SquareEnum.F1) == 0 &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.G1) == 0) {
-                            // make sure king and the f1 squares are not under attacks
-                            if (!isSquareAttacked(SquareEnum.E1.ordinal(), SIDE_BLACK) &&
-                                !isSquareAttacked(SquareEnum.F1.ordinal(), SIDE_BLACK)) {
-                                addMove(moveList, encodeMove(SquareEnum.E1.ordinal(), SquareEnum.G1.ordinal(),
-                                    piece, 0, 0, 0, 0, 1));
-                            }
-                        }
-                    }
+            // pawn captures
+            long attacks = attackTable[sourceSquare] & enemy;
+            while (attacks != 0) {
+                targetSquare = Long.numberOfTrailingZeros(attacks);
 
-                    // queen side castling is available
-                    if ((castle & WQ) != 0) {
-                        // make sure square between king and queen's rook are empty
-                        if (getBit(occupancies[SIDE_BOTH], SquareEnum.D1) == 0 &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.C1) == 0 &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.B1) == 0) {
-                            // make sure king and the d1 squares are not under attacks
-                            if (!isSquareAttacked(SquareEnum.E1.ordinal(), SIDE_BLACK) &&
-                                !isSquareAttacked(SquareEnum.D1.ordinal(), SIDE_BLACK)) {
-                                addMove(moveList, encodeMove(SquareEnum.E1.ordinal(), SquareEnum.C1.ordinal(),
-                                    piece, 0, 0, 0, 0, 1));
-                            }
-                        }
-                    }
+                if (promotes) {
+                    addPromotions(moveList, sourceSquare, targetSquare, pawn, 1);
+                } else {
+                    addMove(moveList, encodeMove(sourceSquare, targetSquare, pawn, 0, 1, 0, 0, 0));
                 }
 
-            } else {
-                // pick up black pawn bitboards index
-                if (piece == PieceEnum.p) {
-                    // loop overSIDE_WHITE pawns withinSIDE_WHITE pawn bitboard
-                    while (bitboard != 0) {
-                        // init source square
-                        sourceSquare = getLsbIndex(bitboard);
-
-                        // init target square
-                        targetSquare = sourceSquare + 8;
-
-                        // generate quite pawn moves
-                        if (!(targetSquare > SquareEnum.H1.ordinal()) &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.intToSquare(targetSquare)) == 0) {
-                            // pawn promotion
-                            if (sourceSquare >= SquareEnum.A2.ordinal() && sourceSquare <= SquareEnum.H2.ordinal()) {
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.q.ordinal(), 0, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.r.ordinal(), 0, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.b.ordinal(), 0, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.n.ordinal(), 0, 0, 0, 0));
-                            } else {
-                                // one square ahead pawn move
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    0, 0, 0, 0, 0));
-
-                                // two squares ahead pawn move
-                                if ((sourceSquare >= SquareEnum.A7.ordinal() && sourceSquare <= SquareEnum.H7.ordinal()) &&
-                                    getBit(occupancies[SIDE_BOTH],
-                                        SquareEnum.intToSquare(targetSquare + 8)) == 0) {
-                                    addMove(moveList, encodeMove(sourceSquare, (targetSquare + 8),
-                                        piece, 0, 0, 1, 0, 0));
-                                }
-                            }
-                        }
+                attacks &= attacks - 1;
+            }
 
-                        // init pawn attacks bitboard
-                        attacks = pawnAttacks[side][sourceSquare] & occupancies[SIDE_WHITE];
-
-                        // generate pawn captures
-                        while (attacks != 0) {
-                            // init target square
-                            targetSquare = getLsbIndex(attacks);
-
-                            // pawn promotion
-                            if (sourceSquare >= SquareEnum.A2.ordinal() && sourceSquare <= SquareEnum.H2.ordinal()) {
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.q.ordinal(), 1, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.r.ordinal(), 1, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.b.ordinal(), 1, 0, 0, 0));
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare, piece,
-                                    PieceEnum.n.ordinal(), 1, 0, 0, 0));
-                            } else {
-                                // one square ahead pawn move
-                                addMove(moveList, encodeMove(sourceSquare, targetSquare,
-                                    piece, 0, 1, 0, 0, 0));
-                            }
-
-                            // pop lsb of the pawn attacks
-                            attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
-                        }
+            // enpassant captures
+            if ((attackTable[sourceSquare] & enpassantBit) != 0) {
+                addMove(moveList, encodeMove(sourceSquare, Long.numberOfTrailingZeros(enpassantBit), pawn,
+                    0, 1, 0, 1, 0));
+            }
 
-                        // generate enpassant captures
-                        if (enpassant != SquareEnum.NO_SQUARE) {
-                            // lookup pawn attacks and bitwise AND with enpassant square (bit)
-                            long enpassantAttacks =
-                                pawnAttacks[side][sourceSquare] & (1L << enpassant.ordinal());
-
-                            // make sure enpassant capture available
-                            if (enpassantAttacks != 0) {
-                                // init enpassant capture target square
-                                int target_enpassant = getLsbIndex(enpassantAttacks);
-                                addMove(moveList, encodeMove(sourceSquare, target_enpassant,
-                                    piece, 0, 1, 0, 1, 0));
-                            }
-                        }
+            bitboard &= bitboard - 1;
+        }
+    }
 
-                        // pop lsb from piece bitboard copy
-                        bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
-                    }
+    // queen, rook, bishop, knight, in that order
+    private void addPromotions(Moves moveList, int sourceSquare, int targetSquare, int pawn, int capture) {
+        for (int promoted = pawn + 4; promoted > pawn; promoted--) {
+            addMove(moveList, encodeMove(sourceSquare, targetSquare, pawn, promoted, capture, 0, 0, 0));
+        }
+    }
+
+    private void generateCastlingMoves(Moves moveList, int king, long both) {
+        if (side == SIDE_WHITE) {
+            // king side: f1 and g1 empty, e1 and f1 not attacked
+            if ((castle & WK) != 0 && (both & WHITE_KING_SIDE_PATH) == 0 &&
+                !isSquareAttacked(SQUARE_E1, SIDE_BLACK) && !isSquareAttacked(SQUARE_F1, SIDE_BLACK)) {
+                addMove(moveList, encodeMove(SQUARE_E1, SQUARE_G1, king, 0, 0, 0, 0, 1));
+            }
+
+            // queen side: b1, c1 and d1 empty, e1 and d1 not attacked
+            if ((castle & WQ) != 0 && (both & WHITE_QUEEN_SIDE_PATH) == 0 &&
+                !isSquareAttacked(SQUARE_E1, SIDE_BLACK) && !isSquareAttacked(SQUARE_D1, SIDE_BLACK)) {
+                addMove(moveList, encodeMove(SQUARE_E1, SQUARE_C1, king, 0, 0, 0, 0, 1));
+            }
+        } else {
+            // king side: f8 and g8 empty, e8 and f8 not attacked
+            if ((castle & BK) != 0 && (both & BLACK_KING_SIDE_PATH) == 0 &&
+                !isSquareAttacked(SQUARE_E8, SIDE_WHITE) && !isSquareAttacked(SQUARE_F8, SIDE_WHITE)) {
+                addMove(moveList, encodeMove(SQUARE_E8, SQUARE_G8, king, 0, 0, 0, 0, 1));
+            }
+
+            // queen side: b8, c8 and d8 empty, e8 and d8 not attacked
+            if ((castle & BQ) != 0 && (both & BLACK_QUEEN_SIDE_PATH) == 0 &&
+                !isSquareAttacked(SQUARE_E8, SIDE_WHITE) && !isSquareAttacked(SQUARE_D8, SIDE_WHITE)) {
+                addMove(moveList, encodeMove(SQUARE_E8, SQUARE_C8, king, 0, 0, 0, 0, 1));
+            }
+        }
+    }
+
+    // one move per target square, captures flagged from the enemy occupancy
+    private void addPieceMoves(Moves moveList, int sourceSquare, long attacks, int piece, long enemy) {
+        while (attacks != 0) {
+            int targetSquare = Long.numberOfTrailingZeros(attacks);
+            int capture = (int) ((enemy >>> targetSquare) & 1L);
+
+            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, capture, 0, 0, 0));
+
+            attacks &= attacks - 1;
+        }
+    }
+
+    /*
+        Generates strictly legal moves, the same way the C++ Position::generate_legals does:
+
+            - king moves avoid every square the opponent attacks with the king lifted off the board
+            - in double check nothing else moves
+            - in single check the other pieces may only capture the checker or block its line
+            - pinned pieces only move along the line through their king, and never while in check
+            - enpassant is checked by replaying the capture on the occupancy, since it removes two
+              pieces from the same rank
+
+        Nothing in the list needs to be tested with makeMove, so perft can count the last ply
+        straight from the list.
+    */
+    public void generateLegalMoves(Moves moveList) {
+        moveList.count = 0;
+
+        int us = side;
+        int them = us ^ 1;
+        int pawn = (us == SIDE_WHITE) ? PIECE_WHITE_PAWN : PIECE_BLACK_PAWN;
+        int theirPawn = (us == SIDE_WHITE) ? PIECE_BLACK_PAWN : PIECE_WHITE_PAWN;
+        int king = pawn + 5;
+
+        long own = occupancies[us];
+        long enemy = occupancies[them];
+        long both = occupancies[SIDE_BOTH];
+
+        int kingSquare = Long.numberOfTrailingZeros(bitboards[king]);
+        long theirDiagonal = bitboards[theirPawn + 2] | bitboards[theirPawn + 4];
+        long theirOrthogonal = bitboards[theirPawn + 3] | bitboards[theirPawn + 4];
+
+        // squares attacked by the opponent, with our king lifted off so it can't step back along a check
+        long danger = attackedSquares(them, both ^ bitboards[king]);
+
+        addPieceMoves(moveList, kingSquare, kingAttacks[kingSquare] & ~own & ~danger, king, enemy);
+
+        long checkers = (pawnAttacks[us][kingSquare] & bitboards[theirPawn]) |
+            (knightAttacks[kingSquare] & bitboards[theirPawn + 1]) |
+            (getBishopAttacks(kingSquare, both) & theirDiagonal) |
+            (getRookAttacks(kingSquare, both) & theirOrthogonal);
+
+        // double check, only the king can move
+        if (Long.bitCount(checkers) > 1) {
+            return;
+        }
+
+        // squares the other pieces may move to: anywhere, or onto the checker and the squares in between
+        long targetMask = ~0L;
+        if (checkers != 0) {
+            targetMask = checkers | squaresBetween[kingSquare * 64 + Long.numberOfTrailingZeros(checkers)];
+        } else {
+            generateLegalCastlingMoves(moveList, king, both, danger);
+        }
+
+        // our pieces that are the only thing between the king and an enemy slider
+        long pinned = 0L;
+        long snipers = (getRookAttacks(kingSquare, enemy) & theirOrthogonal) |
+            (getBishopAttacks(kingSquare, enemy) & theirDiagonal);
+        while (snipers != 0) {
+            long blockers = squaresBetween[kingSquare * 64 + Long.numberOfTrailingZeros(snipers)] & own;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers;
+            }
+
+            snipers &= snipers - 1;
+        }
+
+        generateLegalPawnMoves(moveList, pawn, theirPawn, kingSquare, enemy, both, targetMask, pinned, checkers != 0);
+
+        // knights, bishops, rooks and queens
+        for (int piece = pawn + 1; piece <= pawn + 4; piece++) {
+            long bitboard = bitboards[piece];
+
+            while (bitboard != 0) {
+                int sourceSquare = Long.numberOfTrailingZeros(bitboard);
+                long allowed = targetMask;
+
+                if ((pinned & (1L << sourceSquare)) != 0) {
+                    // a pinned knight can never move, pinned sliders can't help against a check
+                    allowed = (checkers != 0 || piece == pawn + 1) ? 0L : allowed & lines[kingSquare * 64 + sourceSquare];
                 }
 
-                // castling moves
-                if (piece == PieceEnum.k) {
-                    // king side castling is available
-                    if ((castle & BK) != 0) {
-                        // make sure square between king and king's rook are empty
-                        if (getBit(occupancies[SIDE_BOTH], SquareEnum.F8) == 0 &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.G8) == 0) {
-                            // make sure king and the f8 squares are not under attacks
-                            if (!isSquareAttacked(SquareEnum.E8.ordinal(),SIDE_WHITE) &&
-                                !isSquareAttacked(SquareEnum.F8.ordinal(), SIDE_WHITE)) {
-                                addMove(moveList, encodeMove(SquareEnum.E8.ordinal(), SquareEnum.G8.ordinal(),
-                                    piece, 0, 0, 0, 0, 1));
-                            }
-                        }
+                if (allowed != 0) {
+                    long attacks;
+                    switch (piece - pawn) {
+                        case 1: attacks = knightAttacks[sourceSquare]; break;
+                        case 2: attacks = getBishopAttacks(sourceSquare, both); break;
+                        case 3: attacks = getRookAttacks(sourceSquare, both); break;
+                        default: attacks = getQueenAttacks(sourceSquare, both); break;
                     }
 
-                    // queen side castling is available
-                    if ((castle & BQ) != 0) {
-                        // make sure square between king and queen's rook are empty
-                        if (getBit(occupancies[SIDE_BOTH], SquareEnum.D8) == 0 &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.C8) == 0 &&
-                            getBit(occupancies[SIDE_BOTH], SquareEnum.B8) == 0) {
-                            // make sure king and the d8 squares are not under attacks
-                            if (!isSquareAttacked(SquareEnum.E8.ordinal(),SIDE_WHITE) &&
-                                !isSquareAttacked(SquareEnum.D8.ordinal(),SIDE_WHITE)) {
-                                addMove(moveList, encodeMove(SquareEnum.E8.ordinal(), SquareEnum.C8.ordinal(),
-                                    piece, 0, 0, 0, 0, 1));
-                            }
-                        }
-                    }
+                    addPieceMoves(moveList, sourceSquare, attacks & ~own & allowed, piece, enemy);
                 }
+
+                bitboard &= bitboard - 1;
             }
+        }
+    }
 
-            // generate knight moves
-            if ((side ==SIDE_WHITE) ? piece == PieceEnum.N : piece == PieceEnum.n) {
-                // loop over source squares of piece bitboard copy
-                while (bitboard != 0) {
-                    // init source square
-                    sourceSquare = getLsbIndex(bitboard);
-
-                    // init piece attacks in order to get set of target squares
-                    attacks = knightAttacks[sourceSquare] & ((side ==SIDE_WHITE) ?
-                        ~occupancies[SIDE_WHITE] : ~occupancies[SIDE_BLACK]);
-
-                    // loop over target squares available from generated attacks
-                    while (attacks != 0) {
-                        // init target square
-                        targetSquare = getLsbIndex(attacks);
-
-                        // quite move
-                        if (getBit(((side ==SIDE_WHITE) ? occupancies[SIDE_BLACK] :
-                            occupancies[SIDE_WHITE]), SquareEnum.intToSquare(targetSquare)) == 0) {
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare,
-                                piece, 0, 0, 0, 0, 0));
-                        } else {
-                            // capture move
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare,
-                                piece, 0, 1, 0, 0, 0));
-                        }
+    private void generateLegalPawnMoves(Moves moveList, int pawn, int theirPawn, int kingSquare, long enemy,
+                                        long both, long targetMask, long pinned, boolean inCheck) {
+        int forward = (side == SIDE_WHITE) ? 8 : -8;
+        long startRank = (side == SIDE_WHITE) ? RANK_2 : RANK_7;
+        long promotionRank = (side == SIDE_WHITE) ? RANK_7 : RANK_2;
+        long enpassantBit = (enpassant == SquareEnum.NO_SQUARE) ? 0L : 1L << enpassant.ordinal();
+        long[] attackTable = pawnAttacks[side];
 
-                        // pop lsb in current attacks set
-                        attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
-                    }
+        long bitboard = bitboards[pawn];
 
+        while (bitboard != 0) {
+            int sourceSquare = Long.numberOfTrailingZeros(bitboard);
+            long sourceBit = bitboard & -bitboard;
+            boolean promotes = (sourceBit & promotionRank) != 0;
 
-                    // pop lsb of the current piece bitboard copy
-                    bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
-                }
+            long allowed = targetMask;
+            if ((pinned & sourceBit) != 0) {
+                allowed = inCheck ? 0L : allowed & lines[kingSquare * 64 + sourceSquare];
             }
 
-            // generate bishop moves
-            if ((side ==SIDE_WHITE) ? piece == PieceEnum.B : piece == PieceEnum.b) {
-                // loop over source squares of piece bitboard copy
-                while (bitboard != 0) {
-                    // init source square
-                    sourceSquare = getLsbIndex(bitboard);
-
-                    // init piece attacks in order to get set of target squares
-                    attacks = getBishopAttacks(sourceSquare, occupancies[SIDE_BOTH]) & ((side ==SIDE_WHITE) ? ~occupancies[SIDE_WHITE] : ~occupancies[SIDE_BLACK]);
-
-                    // loop over target squares available from generated attacks
-                    while (attacks != 0) {
-                        // init target square
-                        targetSquare = getLsbIndex(attacks);
-
-                        // quite move
-                        if (getBit(((side ==SIDE_WHITE) ? occupancies[SIDE_BLACK] :
-                            occupancies[SIDE_WHITE]), SquareEnum.intToSquare(targetSquare)) == 0) {
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare,
-                                piece, 0, 0, 0, 0, 0));
-                        } else {
-                            // capture move
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare,
-                                piece, 0, 1, 0, 0, 0));
-                        }
-
-                        // pop lsb in current attacks set
-                        attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
+            // quiet pawn moves, a double push may block a check the single push doesn't
+            int targetSquare = sourceSquare + forward;
+            if (targetSquare >= 0 && targetSquare < 64 && (both & (1L << targetSquare)) == 0) {
+                if ((allowed & (1L << targetSquare)) != 0) {
+                    if (promotes) {
+                        addPromotions(moveList, sourceSquare, targetSquare, pawn, 0);
+                    } else {
+                        addMove(moveList, encodeMove(sourceSquare, targetSquare, pawn, 0, 0, 0, 0, 0));
                     }
+                }
 
-                    // pop lsb of the current piece bitboard copy
-                    bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
+                int doubleSquare = targetSquare + forward;
+                if ((sourceBit & startRank) != 0 && (both & (1L << doubleSquare)) == 0 &&
+                    (allowed & (1L << doubleSquare)) != 0) {
+                    addMove(moveList, encodeMove(sourceSquare, doubleSquare, pawn, 0, 0, 1, 0, 0));
                 }
             }
 
-            // generate rook moves
-            if ((side ==SIDE_WHITE) ? piece == PieceEnum.R : piece == PieceEnum.r) {
-                // loop over source squares of piece bitboard copy
-                while (bitboard != 0) {
-                    // init source square
-                    sourceSquare = getLsbIndex(bitboard);
-
-                    // init piece attacks in order to get set of target squares
-                    attacks = getRookAttacks(sourceSquare, occupancies[SIDE_BOTH]) & ((side ==SIDE_WHITE) ? ~occupancies[SIDE_WHITE] : ~occupancies[SIDE_BLACK]);
-
-                    // loop over target squares available from generated attacks
-                    while (attacks != 0) {
-                        // init target square
-                        targetSquare = getLsbIndex(attacks);
-
-                        // quite move
-                        if (getBit(((side ==SIDE_WHITE) ? occupancies[SIDE_BLACK] :
-                            occupancies[SIDE_WHITE]), SquareEnum.intToSquare(targetSquare)) == 0) {
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, 0, 0, 0, 0));
-                        } else {
-                            // capture move
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, 1, 0, 0, 0));
-                        }
+            // pawn captures
+            long attacks = attackTable[sourceSquare] & enemy & allowed;
+            while (attacks != 0) {
+                targetSquare = Long.numberOfTrailingZeros(attacks);
 
-                        // pop lsb in current attacks set
-                        attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
-                    }
+                if (promotes) {
+                    addPromotions(moveList, sourceSquare, targetSquare, pawn, 1);
+                } else {
+                    addMove(moveList, encodeMove(sourceSquare, targetSquare, pawn, 0, 1, 0, 0, 0));
+                }
+
+                attacks &= attacks - 1;
+            }
 
+            // enpassant captures
+            if ((attackTable[sourceSquare] & enpassantBit) != 0) {
+                int enpassantSquare = Long.numberOfTrailingZeros(enpassantBit);
 
-                    // pop lsb of the current piece bitboard copy
-                    bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
+                if (enpassantKeepsKingSafe(sourceSquare, enpassantSquare, enpassantSquare - forward, kingSquare,
+                    theirPawn)) {
+                    addMove(moveList, encodeMove(sourceSquare, enpassantSquare, pawn, 0, 1, 0, 1, 0));
                 }
             }
 
-            // generate queen moves
-            if ((side == SIDE_WHITE) ? piece == PieceEnum.Q : piece == PieceEnum.q) {
-                // loop over source squares of piece bitboard copy
-                while (bitboard != 0) {
-                    // init source square
-                    sourceSquare = getLsbIndex(bitboard);
-
-                    // init piece attacks in order to get set of target squares
-                    attacks =
-                        getQueenAttacks(sourceSquare, occupancies[SIDE_BOTH]) & ((side == SIDE_WHITE) ? ~occupancies[SIDE_WHITE] : ~occupancies[SIDE_BLACK]);
-
-                    // loop over target squares available from generated attacks
-                    while (attacks != 0) {
-                        // init target square
-                        targetSquare = getLsbIndex(attacks);
-
-                        // quite move
-                        if (getBit(((side ==SIDE_WHITE) ? occupancies[SIDE_BLACK] :
-                            occupancies[SIDE_WHITE]), SquareEnum.intToSquare(targetSquare)) == 0) {
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, 0, 0, 0, 0));
-                        } else {
-                            // capture move
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, 1, 0, 0, 0));
-                        }
+            bitboard &= bitboard - 1;
+        }
+    }
 
-                        // pop lsb in current attacks set
-                        attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
-                    }
+    // replays the enpassant capture on the occupancy and looks for anything attacking the king afterwards
+    private boolean enpassantKeepsKingSafe(int sourceSquare, int targetSquare, int capturedSquare, int kingSquare,
+                                           int theirPawn) {
+        long capturedBit = 1L << capturedSquare;
+        long occupancy = (occupancies[SIDE_BOTH] & ~(1L << sourceSquare) & ~capturedBit) | (1L << targetSquare);
 
-                    // pop lsb of the current piece bitboard copy
-                    bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
-                }
+        long theirDiagonal = bitboards[theirPawn + 2] | bitboards[theirPawn + 4];
+        long theirOrthogonal = bitboards[theirPawn + 3] | bitboards[theirPawn + 4];
+
+        return (pawnAttacks[side][kingSquare] & bitboards[theirPawn] & ~capturedBit) == 0 &&
+            (knightAttacks[kingSquare] & bitboards[theirPawn + 1]) == 0 &&
+            (getBishopAttacks(kingSquare, occupancy) & theirDiagonal) == 0 &&
+            (getRookAttacks(kingSquare, occupancy) & theirOrthogonal) == 0;
+    }
+
+    // only called when not in check, the king's path (including its target) must be empty and safe
+    private void generateLegalCastlingMoves(Moves moveList, int king, long both, long danger) {
+        if (side == SIDE_WHITE) {
+            if ((castle & WK) != 0 && (both & WHITE_KING_SIDE_PATH) == 0 && (danger & WHITE_KING_SIDE_PATH) == 0) {
+                addMove(moveList, encodeMove(SQUARE_E1, SQUARE_G1, king, 0, 0, 0, 0, 1));
             }
 
-            // generate king moves
-            if ((side ==SIDE_WHITE) ? piece == PieceEnum.K : piece == PieceEnum.k) {
-                // loop over source squares of piece bitboard copy
-                while (bitboard != 0) {
-                    // init source square
-                    sourceSquare = getLsbIndex(bitboard);
-
-                    // init piece attacks in order to get set of target squares
-                    attacks = kingAttacks[sourceSquare] & ((side == SIDE_WHITE) ?
-                        ~occupancies[SIDE_WHITE] : ~occupancies[SIDE_BLACK]);
-
-                    // loop over target squares available from generated attacks
-                    while (attacks != 0) {
-                        // init target square
-                        targetSquare = getLsbIndex(attacks);
-
-                        // quite move
-                        if (getBit(((side ==SIDE_WHITE) ? occupancies[SIDE_BLACK] :
-                            occupancies[SIDE_WHITE]), SquareEnum.intToSquare(targetSquare)) == 0) {
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, 0, 0, 0, 0));
-                        } else {
-                            // capture move
-                            addMove(moveList, encodeMove(sourceSquare, targetSquare, piece, 0, 1, 0, 0, 0));
-                        }
-                        // pop lsb in current attacks set
-                        attacks = popBit(attacks, SquareEnum.intToSquare(targetSquare));
-                    }
+            if ((castle & WQ) != 0 && (both & WHITE_QUEEN_SIDE_PATH) == 0 &&
+                (danger & ((1L << SQUARE_C1) | (1L << SQUARE_D1))) == 0) {
+                addMove(moveList, encodeMove(SQUARE_E1, SQUARE_C1, king, 0, 0, 0, 0, 1));
+            }
+        } else {
+            if ((castle & BK) != 0 && (both & BLACK_KING_SIDE_PATH) == 0 && (danger & BLACK_KING_SIDE_PATH) == 0) {
+                addMove(moveList, encodeMove(SQUARE_E8, SQUARE_G8, king, 0, 0, 0, 0, 1));
+            }
 
-                    // pop lsb of the current piece bitboard copy
-                    bitboard = popBit(bitboard, SquareEnum.intToSquare(sourceSquare));
-                }
+            if ((castle & BQ) != 0 && (both & BLACK_QUEEN_SIDE_PATH) == 0 &&
+                (danger & ((1L << SQUARE_C8) | (1L << SQUARE_D8))) == 0) {
+                addMove(moveList, encodeMove(SQUARE_E8, SQUARE_C8, king, 0, 0, 0, 0, 1));
             }
         }
     }
 
+    // every square the given side attacks for the given occupancy
+    private long attackedSquares(int attacker, long occupancy) {
+        int pawn = (attacker == SIDE_WHITE) ? PIECE_WHITE_PAWN : PIECE_BLACK_PAWN;
+        long attacks = 0L;
+
+        long bitboard = bitboards[pawn];
+        while (bitboard != 0) {
+            attacks |= pawnAttacks[attacker][Long.numberOfTrailingZeros(bitboard)];
+            bitboard &= bitboard - 1;
+        }
+
+        bitboard = bitboards[pawn + 1];
+        while (bitboard != 0) {
+            attacks |= knightAttacks[Long.numberOfTrailingZeros(bitboard)];
+            bitboard &= bitboard - 1;
+        }
+
+        bitboard = bitboards[pawn + 2] | bitboards[pawn + 4];
+        while (bitboard != 0) {
+            attacks |= getBishopAttacks(Long.numberOfTrailingZeros(bitboard), occupancy);
+            bitboard &= bitboard - 1;
+        }
+
+        bitboard = bitboards[pawn + 3] | bitboards[pawn + 4];
+        while (bitboard != 0) {
+            attacks |= getRookAttacks(Long.numberOfTrailingZeros(bitboard), occupancy);
+            bitboard &= bitboard - 1;
+        }
+
+        return attacks | kingAttacks[Long.numberOfTrailingZeros(bitboards[pawn + 5])];
+    }
+
     public void parseFen(String fen) {
         Arrays.fill(bitboards, 0L);
         Arrays.fill(occupancies, 0L);
@@ -1354,12 +1066,13 @@ public class Board {
         side = 0;
         enpassant = SquareEnum.NO_SQUARE;
         castle = 0;
+        ply = 0;
 
         int fenIndex = 0;
 
         for (int rank = 0; rank < 8; ++rank) {
             for (int file = 0; file < 8; ++file) {
-                int square = rank * 8 + file;
+                int square = (7 - rank) * 8 + file;
 
                 // match ascii pieces within FEN string
                 if ((fen.charAt(fenIndex) >= 'a' && fen.charAt(fenIndex) <= 'z') || (fen.charAt(fenIndex) >= 'A' && fen.charAt(fenIndex) <= 'Z')) {
@@ -1442,7 +1155,7 @@ public class Board {
         if (fen.charAt(fenIndex) != '-') {
             // parse enpassant file & rank
             int file = fen.charAt(fenIndex) - 'a';
-            int rank = 8 - (fen.charAt(fenIndex+1) - '0');
+            int rank = fen.charAt(fenIndex+1) - '1';
 
             // init enpassant square
             enpassant = SquareEnum.intToSquare(rank * 8 + file);
@@ -1470,6 +1183,122 @@ public class Board {
         // init all occupancies
         occupancies[SIDE_BOTH] |= occupancies[SIDE_WHITE];
         occupancies[SIDE_BOTH] |= occupancies[SIDE_BLACK];
+
+        hash = generateHash();
+    }
+
+    // FEN of the current position, move counters are not tracked so they always read "0 1"
+    public String getFen() {
+        StringBuilder fen = new StringBuilder(90);
+
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+
+            for (int file = 0; file < 8; file++) {
+                PieceEnum piece = pieceAt(rank * 8 + file);
+
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(piece.name());
+            }
+
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(side == SIDE_WHITE ? " w " : " b ");
+
+        if (castle == 0) {
+            fen.append('-');
+        } else {
+            if ((castle & WK) != 0) fen.append('K');
+            if ((castle & WQ) != 0) fen.append('Q');
+            if ((castle & BK) != 0) fen.append('k');
+            if ((castle & BQ) != 0) fen.append('q');
+        }
+
+        fen.append(' ');
+        fen.append(enpassant != SquareEnum.NO_SQUARE ? enpassant.name().toLowerCase() : "-");
+        fen.append(" 0 1");
+
+        return fen.toString();
+    }
+
+    // returns the piece on the square, or null when it is empty
+    public PieceEnum pieceAt(int square) {
+        long bit = 1L << square;
+
+        if ((occupancies[SIDE_BOTH] & bit) == 0) {
+            return null;
+        }
+
+        for (int piece = 0; piece < 12; piece++) {
+            if ((bitboards[piece] & bit) != 0) {
+                return PieceEnum.intToPiece(piece);
+            }
+        }
+
+        return null;
+    }
+
+    public void getBoard(BoardSnapshot snapshot) {
+        Arrays.fill(snapshot.pieces, BoardSnapshot.EMPTY);
+
+        for (int piece = 0; piece < 12; piece++) {
+            long bitboard = bitboards[piece];
+
+            while (bitboard != 0) {
+                snapshot.pieces[Long.numberOfTrailingZeros(bitboard)] = (byte) piece;
+                bitboard &= bitboard - 1;
+            }
+        }
+
+        snapshot.side = side;
+        snapshot.castling = castle;
+        snapshot.enpassant = enpassant;
+        snapshot.hash = hash;
+    }
+
+    public boolean isInCheck() {
+        int king = side == SIDE_WHITE ? PieceEnum.K.ordinal() : PieceEnum.k.ordinal();
+        return isSquareAttacked(Long.numberOfTrailingZeros(bitboards[king]), side ^ 1);
+    }
+
+    // computes the zobrist key of the current position from scratch
+    public long generateHash() {
+        long key = 0L;
+
+        for (int piece = 0; piece < 12; piece++) {
+            long bitboard = bitboards[piece];
+
+            while (bitboard != 0) {
+                key ^= PIECE_KEYS[piece][Long.numberOfTrailingZeros(bitboard)];
+                bitboard &= bitboard - 1;
+            }
+        }
+
+        if (enpassant != SquareEnum.NO_SQUARE) {
+            key ^= ENPASSANT_KEYS[enpassant.ordinal()];
+        }
+
+        key ^= CASTLE_KEYS[castle];
+
+        if (side == SIDE_BLACK) {
+            key ^= SIDE_KEY;
+        }
+
+        return key;
     }
 
     public void testMagicNumbers(boolean bishop) {
@@ -1477,17 +1306,17 @@ public class Board {
 
         for (int square = 0; square < 64; square++) {
             long mask = bishop ? bishopMasks[square] : rookMasks[square];
-            int relevantBits = bishop ? BISHOP_RELEVANT_BITS[square] : ROOK_RELEVANT_BITS[square];
-            long magic = bishop ? BISHOP_MAGIC_NUMBERS[square] : ROOK_MAGIC_NUMBERS[square];
+            int relevantBits = bishop ? AttackTables.BISHOP_RELEVANT_BITS[square] : AttackTables.ROOK_RELEVANT_BITS[square];
+            long magic = bishop ? AttackTables.BISHOP_MAGIC_NUMBERS[square] : AttackTables.ROOK_MAGIC_NUMBERS[square];
 
             int occupancyCount = 1 << countBits(mask);
             long[] usedAttacks = new long[occupancyCount];
 
             for (int index = 0; index < occupancyCount; index++) {
-                long occupancy = setOccupancy(index, countBits(mask), mask);
+                long occupancy = AttackTables.setOccupancy(index, countBits(mask), mask);
                 long attack = bishop
-                    ? bishopAttacksOnTheFly(SquareEnum.intToSquare(square), occupancy)
-                    : rookAttacksOnTheFly(SquareEnum.intToSquare(square), occupancy);
+                    ? AttackTables.bishopAttacksOnTheFly(SquareEnum.intToSquare(square), occupancy)
+                    : AttackTables.rookAttacksOnTheFly(SquareEnum.intToSquare(square), occupancy);
 
                 int magicIndex = (int)((occupancy * magic) >>> (64 - relevantBits));
 
@@ -1518,7 +1347,7 @@ public class Board {
         System.out.println();
         for (int rank = 0; rank < 8; rank++) {
             for (int file = 0; file < 8; file++) {
-                SquareEnum square = SquareEnum.intToSquare(rank * 8 + file);
+                SquareEnum square = SquareEnum.intToSquare((7 - rank) * 8 + file);
 
                 if (file == 0) {
                     System.out.printf("  %d ", 8 - rank);
@@ -1536,7 +1365,7 @@ public class Board {
         System.out.println();
         for (int rank = 0; rank < 8; rank++) {
             for (int file = 0; file < 8; file++) {
-                SquareEnum square = SquareEnum.intToSquare(rank * 8 + file);
+                SquareEnum square = SquareEnum.intToSquare((7 - rank) * 8 + file);
                 PieceEnum pieceEnum = null;
 
                 for (PieceEnum piece : PieceEnum.values()) {
@@ -1585,17 +1414,20 @@ public class Board {
         return bitboards;
     }
 
+    public long getHash() {
+        return hash;
+    }
+
     public int getSide() {
         return side;
     }
 
+    // whether any move in moveList, pseudo-legal or legal, can be made; the list is left as it is
     public boolean hasLegalMoves(Moves moveList) {
         for (int i = 0; i < moveList.count; i++) {
-            BoardState oldState = copyBoard();
-            boolean isLegal = makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
-            takeBack(oldState);
-
-            if (isLegal) {
+            // makeMove takes an illegal move back itself
+            if (makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES)) {
+                unmakeMove(moveList.moves[i]);
                 return true;
             }
         }
@@ -1605,11 +1437,12 @@ public class Board {
     // parse user/GUI move string input (e.g. "e7e8q")
     public int parseMove(String moveString) {
 
-        Moves moveList = new Moves();
-        generateMoves(moveList);
+        // legal moves only, so an illegal move string is never matched
+        Moves moveList = parseMoveList;
+        generateLegalMoves(moveList);
 
-        int source_square = (moveString.charAt(0) - 'a') + (8 - (moveString.charAt(1) - '0')) * 8;
-        int target_square = (moveString.charAt(2) - 'a') + (8 - (moveString.charAt(3) - '0')) * 8;
+        int source_square = (moveString.charAt(0) - 'a') + (moveString.charAt(1) - '1') * 8;
+        int target_square = (moveString.charAt(2) - 'a') + (moveString.charAt(3) - '1') * 8;
 
         // loop over the moves within a move list
         for (int move_count = 0; move_count < moveList.count; ++move_count) {
@@ -0,0 +1,41 @@
+package com.iro.board;
+
+/*
+    Everything needed to draw or inspect a position, filled in one MoveGenerator.getBoard call, so the
+    native backends cross into C++ once per position instead of once per square.
+
+    Reuse one snapshot across positions, getBoard overwrites every field.
+*/
+public class BoardSnapshot {
+    public static final byte EMPTY = -1;
+
+    // indices into the state array the native getBoard fills, see board_snapshot.h
+    static final int STATE_SIDE = 0;
+    static final int STATE_CASTLING = 1;
+    static final int STATE_ENPASSANT = 2;
+    static final int STATE_HASH = 3;
+    static final int STATE_SIZE = 4;
+
+    // PieceEnum ordinal per square (a1 = 0), EMPTY for an empty square
+    public final byte[] pieces = new byte[64];
+    public int side;
+    // K = 1, Q = 2, k = 4, q = 8
+    public int castling;
+    // en passant target square, NO_SQUARE when there is none
+    public SquareEnum enpassant = SquareEnum.NO_SQUARE;
+    public long hash;
+
+    // returns the piece on the square, or null when it is empty
+    public PieceEnum pieceAt(int square) {
+        byte piece = pieces[square];
+        return piece == EMPTY ? null : PieceEnum.intToPiece(piece);
+    }
+
+    // copies the state array filled by the native side into the fields
+    void setState(long[] state) {
+        side = (int) state[STATE_SIDE];
+        castling = (int) state[STATE_CASTLING];
+        enpassant = SquareEnum.intToSquare((int) state[STATE_ENPASSANT]);
+        hash = state[STATE_HASH];
+    }
+}
@@ -8,16 +8,22 @@ public class BoardState {
     int side_copy;
     SquareEnum enpassant_copy;
     int castle_copy;
+    int ply_copy;
+    long hash_copy;
 
     public BoardState(long[] bitboards,
                       long[] occupancies,
                       int side,
                       SquareEnum enpassant,
-                      int castle) {
+                      int castle,
+                      int ply,
+                      long hash) {
         this.bitboards_copy = Arrays.copyOf(bitboards, 12);
         this.occupancies_copy = Arrays.copyOf(occupancies, 3);
         this.side_copy = side;
         this.enpassant_copy = enpassant;
         this.castle_copy = castle;
+        this.ply_copy = ply;
+        this.hash_copy = hash;
     }
 }
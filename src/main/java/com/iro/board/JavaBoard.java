@@ -0,0 +1,272 @@
+package com.iro.board;
+
+import java.util.Arrays;
+
+/*
+    MoveGenerator over the pure-Java Board.
+
+    Board works with its own 24-bit moves, so moves are translated to the Moves encoding when they
+    are generated and back when they are made. The Board moves that were made are kept on a stack,
+    which is what undoMove takes back.
+*/
+public class JavaBoard implements MoveGenerator {
+    private final Board board = new Board();
+
+    // Board moves of the current position, in the same order as the translated list
+    private final Moves boardMoves = new Moves();
+
+    // scratch list reused by parseMove so engine replies don't allocate
+    private final Moves parseMoveList = new Moves();
+
+    // Board moves made since the last setFen, undoMove pops them
+    private int[] played = new int[256];
+    private int playedCount;
+
+    // one Board move list per remaining perft depth
+    private Moves[] perftMoveLists = new Moves[0];
+
+    @Override
+    public String getName() {
+        return "java";
+    }
+
+    // the position lives on the Java heap, there is nothing to acquire or release
+    @Override
+    public void createPosition() {
+    }
+
+    @Override
+    public void destroyPosition() {
+    }
+
+    @Override
+    public void setFen(String fen) {
+        board.parseFen(fen);
+        playedCount = 0;
+    }
+
+    @Override
+    public String getFen() {
+        return board.getFen();
+    }
+
+    @Override
+    public int getSide() {
+        return board.getSide();
+    }
+
+    @Override
+    public void generateMoves(Moves moveList) {
+        board.generateLegalMoves(boardMoves);
+
+        for (int i = 0; i < boardMoves.count; i++) {
+            moveList.moves[i] = toMovesEncoding(boardMoves.moves[i]);
+        }
+        moveList.count = boardMoves.count;
+    }
+
+    @Override
+    public void makeMove(int move) {
+        int boardMove = toBoardEncoding(move);
+        board.makeMove(boardMove, MoveTypeEnum.ALL_MOVES);
+
+        if (playedCount == played.length) {
+            played = Arrays.copyOf(played, played.length * 2);
+        }
+        played[playedCount++] = boardMove;
+    }
+
+    @Override
+    public void undoMove(int move) {
+        board.unmakeMove(played[--playedCount]);
+    }
+
+    @Override
+    public int playUciMoves(String moves) {
+        Moves moveList = new Moves();
+        String[] tokens = moves.trim().split("\\s+");
+
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].isEmpty()) {
+                continue;
+            }
+
+            generateMoves(moveList);
+            int move = tokens[i].length() == 4 || tokens[i].length() == 5 ? Moves.fromUci(moveList, tokens[i]) : 0;
+            if (move == 0) {
+                return i;
+            }
+
+            makeMove(move);
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int playMoves(int[] moves, int count) {
+        Moves moveList = new Moves();
+
+        for (int i = 0; i < count; i++) {
+            generateMoves(moveList);
+            if (!contains(moveList, moves[i])) {
+                return i;
+            }
+
+            makeMove(moves[i]);
+        }
+
+        return -1;
+    }
+
+    @Override
+    public long getHash() {
+        return board.getHash();
+    }
+
+    @Override
+    public boolean isInCheck() {
+        return board.isInCheck();
+    }
+
+    @Override
+    public boolean hasLegalMoves(Moves moveList) {
+        return moveList.count > 0;
+    }
+
+    @Override
+    public PieceEnum pieceAt(int square) {
+        return board.pieceAt(square);
+    }
+
+    @Override
+    public void getBoard(BoardSnapshot snapshot) {
+        board.getBoard(snapshot);
+    }
+
+    @Override
+    public long perft(int depth) {
+        // a negative depth counts nothing, as on the native side
+        if (depth < 0) {
+            return 0;
+        }
+
+        ensurePerftMoveLists(depth);
+        return perftDriver(depth);
+    }
+
+    @Override
+    public long[] perftDivide(int depth) {
+        // no root moves to split below depth 1, as on the native side
+        if (depth < 1) {
+            return new long[0];
+        }
+
+        ensurePerftMoveLists(depth);
+
+        Moves moveList = new Moves();
+        board.generateLegalMoves(moveList);
+
+        long[] divide = new long[moveList.count];
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+            divide[i] = perftDriver(depth - 1);
+            board.unmakeMove(moveList.moves[i]);
+        }
+
+        return divide;
+    }
+
+    @Override
+    public int parseMove(String uci) {
+        generateMoves(parseMoveList);
+        return Moves.fromUci(parseMoveList, uci);
+    }
+
+    // perft walks Board moves directly, there is no need to translate every node
+    private long perftDriver(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        Moves moveList = perftMoveLists[depth];
+        board.generateLegalMoves(moveList);
+
+        if (depth == 1) {
+            return moveList.count;
+        }
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+            nodes += perftDriver(depth - 1);
+            board.unmakeMove(moveList.moves[i]);
+        }
+
+        return nodes;
+    }
+
+    private void ensurePerftMoveLists(int depth) {
+        if (perftMoveLists.length > depth) {
+            return;
+        }
+
+        perftMoveLists = new Moves[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            perftMoveLists[i] = new Moves();
+        }
+    }
+
+    private static boolean contains(Moves moveList, int move) {
+        for (int i = 0; i < moveList.count; i++) {
+            if (moveList.moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int toMovesEncoding(int boardMove) {
+        int source = boardMove & 0x3f;
+        int target = (boardMove >>> 6) & 0x3f;
+        int promoted = (boardMove >>> 16) & 0xf;
+        boolean capture = (boardMove & 0x100000) != 0;
+
+        int flags;
+        if ((boardMove & 0x800000) != 0) {
+            // OO lands on the g file, OOO on the c file
+            flags = (target & 7) == 6 ? 0b0010 : 0b0011;
+        } else if (promoted != 0) {
+            // N, B, R, Q map to promotion types 0 to 3 for either colour
+            flags = (capture ? 0b1100 : 0b0100) | (promoted % 6 - 1);
+        } else if ((boardMove & 0x400000) != 0) {
+            flags = 0b1010;
+        } else if (capture) {
+            flags = 0b1000;
+        } else if ((boardMove & 0x200000) != 0) {
+            flags = 0b0001;
+        } else {
+            flags = 0;
+        }
+
+        return flags << 12 | source << 6 | target;
+    }
+
+    private int toBoardEncoding(int move) {
+        int source = (move >> 6) & 0x3f;
+        int target = move & 0x3f;
+
+        int promoted = 0;
+        if (Moves.isPromotion(move)) {
+            promoted = Moves.getPromotionPieceType(move) + 1 + (board.getSide() == SIDE_BLACK ? 6 : 0);
+        }
+
+        return board.encodeMove(source, target, board.pieceAt(source), promoted,
+            Moves.isCapture(move) ? 1 : 0,
+            Moves.getMoveFlags(move) == 0b0001 ? 1 : 0,
+            Moves.isEnPassant(move) ? 1 : 0,
+            Moves.isCastling(move) ? 1 : 0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.iro.board;
+
+/*
+    A chess position with legal move generation, implemented by the C++ generator (NativeBoard) and
+    by the pure-Java Board (JavaBoard). Use MoveGenerators.create to get one.
+
+    Every move crossing this interface uses the Moves encoding, flags[15:12] | from[11:6] | to[5:0]
+    with a1 = 0, whatever the backend uses internally.
+*/
+public interface MoveGenerator {
+    int SIDE_WHITE = 0;
+    int SIDE_BLACK = 1;
+
+    String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 ";
+
+    // "native" or "java"
+    String getName();
+
+    // acquires and releases whatever the backend keeps outside the Java heap
+    void createPosition();
+    void destroyPosition();
+
+    void setFen(String fen);
+    String getFen();
+
+    int getSide();
+
+    // fills moveList with the legal moves of the current position
+    void generateMoves(Moves moveList);
+
+    // moves are taken back in the reverse order they were made
+    void makeMove(int move);
+    void undoMove(int move);
+
+    // Plays a whole move sequence, for importing games. Stops at the first move that isn't legal and
+    // returns its index, with every move before it played, or -1 when all of them were played
+    int playUciMoves(String moves); // whitespace separated, "e2e4 e7e5 g1f3"
+    int playMoves(int[] moves, int count);
+
+    long getHash();
+
+    boolean isInCheck();
+
+    // moveList must hold the moves generateMoves returned for the current position
+    boolean hasLegalMoves(Moves moveList);
+
+    // returns the piece on the square, or null when it is empty
+    PieceEnum pieceAt(int square);
+
+    // fills snapshot with the whole position, prefer it to pieceAt for more than a square or two
+    void getBoard(BoardSnapshot snapshot);
+
+    long perft(int depth);
+
+    // node count per root move, in generateMoves order
+    long[] perftDivide(int depth);
+
+    // returns the legal move matching a UCI string such as "e7e8q", or 0 when there is none
+    int parseMove(String uci);
+}
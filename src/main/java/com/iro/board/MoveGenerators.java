@@ -0,0 +1,173 @@
+package com.iro.board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Picks the MoveGenerator backend at startup.
+
+        native   the C++ generator through JNI, falls back to java when the shared library can't be loaded
+        ffm      the C++ generator through the Foreign Function & Memory API, falls back to native
+        java     the pure-Java Board
+        auto     times every available backend on the same workload and keeps the fastest one
+
+    The auto probe walks a small perft through the interface, so it pays for every generateMoves,
+    makeMove and undoMove call the way the GUI does, JNI or FFM crossings included.
+*/
+public final class MoveGenerators {
+    public static final String AUTO = "auto";
+    public static final String NATIVE = "native";
+    public static final String FFM = "ffm";
+    public static final String JAVA = "java";
+
+    // FfmBoard and FfmMoveGen are built in the ffm source set, the only code compiled with preview
+    // features on, so main looks them up by name and runs without them
+    private static final String FFM_BOARD = "com.iro.board.FfmBoard";
+    private static final String FFM_MOVE_GEN = "com.iro.board.FfmMoveGen";
+
+    private static final int PROBE_DEPTH = 3;
+    private static final int PROBE_ROUNDS = 3;
+
+    private MoveGenerators() {
+    }
+
+    // returns a generator with its position created and set to the start position
+    public static MoveGenerator create(String backend) {
+        MoveGenerator generator = switch (backend) {
+            case JAVA -> new JavaBoard();
+            case NATIVE -> nativeOrJava();
+            case FFM -> ffmOrNative();
+            case AUTO -> probe();
+            default -> throw new IllegalArgumentException("Unknown move generator backend: " + backend);
+        };
+
+        generator.createPosition();
+        generator.setFen(MoveGenerator.START_POSITION);
+
+        System.out.println("Move generator: " + generator.getName());
+
+        return generator;
+    }
+
+    private static MoveGenerator nativeOrJava() {
+        if (NativeMoveGen.isLoaded()) {
+            return new NativeBoard();
+        }
+
+        System.out.println("Native move generator unavailable (" + NativeMoveGen.getLoadError() +
+            "), using the Java one");
+        return new JavaBoard();
+    }
+
+    private static MoveGenerator ffmOrNative() {
+        String error = ffmLoadError();
+        if (error == null) {
+            return newFfmBoard();
+        }
+
+        System.out.println("FFM move generator unavailable (" + error + "), using JNI");
+        return nativeOrJava();
+    }
+
+    // null when the FFM binding is usable
+    static String ffmLoadError() {
+        try {
+            Class.forName(FFM_BOARD);
+            return (String) Class.forName(FFM_MOVE_GEN).getMethod("getLoadError").invoke(null);
+        } catch (ClassNotFoundException e) {
+            return "not built, the ffm source set is only compiled on JDK 21";
+        } catch (LinkageError e) {
+            // java.lang.foreign is a preview API in JDK 21, the binding doesn't load without --enable-preview
+            return "run with --enable-preview";
+        } catch (ReflectiveOperationException e) {
+            return e.toString();
+        }
+    }
+
+    // callers check ffmLoadError first
+    static MoveGenerator newFfmBoard() {
+        try {
+            return (MoveGenerator) Class.forName(FFM_BOARD).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("FFM move generator unavailable", e);
+        }
+    }
+
+    private static MoveGenerator probe() {
+        List<MoveGenerator> candidates = new ArrayList<>();
+        candidates.add(new JavaBoard());
+        if (NativeMoveGen.isLoaded()) {
+            candidates.add(new NativeBoard());
+        }
+        if (ffmLoadError() == null) {
+            candidates.add(newFfmBoard());
+        }
+
+        if (candidates.size() == 1) {
+            return nativeOrJava();
+        }
+
+        MoveGenerator fastest = null;
+        long fastestNanos = Long.MAX_VALUE;
+        StringBuilder report = new StringBuilder("Move generator probe:");
+
+        for (MoveGenerator candidate : candidates) {
+            long nanos = time(candidate);
+            report.append(String.format(" %s %.2f ms", candidate.getName(), nanos / 1e6));
+
+            if (nanos < fastestNanos) {
+                fastest = candidate;
+                fastestNanos = nanos;
+            }
+        }
+
+        System.out.println(report);
+
+        return fastest;
+    }
+
+    // best of a few rounds, so a single GC pause or JIT compile doesn't decide the backend
+    private static long time(MoveGenerator generator) {
+        generator.createPosition();
+
+        try {
+            generator.setFen(Perft.KIWIPETE);
+
+            Moves[] moveLists = new Moves[PROBE_DEPTH + 1];
+            for (int i = 0; i <= PROBE_DEPTH; i++) {
+                moveLists[i] = new Moves();
+            }
+
+            long best = Long.MAX_VALUE;
+
+            for (int round = 0; round < PROBE_ROUNDS; round++) {
+                long start = System.nanoTime();
+                walk(generator, PROBE_DEPTH, moveLists);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            return best;
+        } finally {
+            generator.destroyPosition();
+        }
+    }
+
+    private static long walk(MoveGenerator generator, int depth, Moves[] moveLists) {
+        Moves moveList = moveLists[depth];
+        generator.generateMoves(moveList);
+
+        if (depth == 1) {
+            return moveList.count;
+        }
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            generator.makeMove(moveList.moves[i]);
+            nodes += walk(generator, depth - 1, moveLists);
+            generator.undoMove(moveList.moves[i]);
+        }
+
+        return nodes;
+    }
+}
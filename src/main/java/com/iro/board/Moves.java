@@ -1,5 +1,7 @@
 package com.iro.board;
 
+import java.util.Arrays;
+
 public class Moves {
     public int[] moves;
     public int count;
@@ -9,6 +11,15 @@ public class Moves {
         count = 0;
     }
 
+    // appends a move, growing the list when it is full; for lists like a game's history that have no
+    // upper bound, move generation writes into moves directly
+    public void add(int move) {
+        if (count == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[count++] = move;
+    }
+
     // C++ move format: flags[15:12] | from[11:6] | to[5:0]
     public static SquareEnum getMoveSource(int move) {
         return SquareEnum.intToSquare((move >> 6) & 0x3f);
@@ -54,6 +65,35 @@ public class Moves {
         return getMoveFlags(move) == 0b1010;
     }
 
+    public static boolean isCastling(int move) {
+        int flags = getMoveFlags(move);
+        return flags == 0b0010 || flags == 0b0011;
+    }
+
+    // returns the move in moveList matching a UCI string such as "e7e8q", or 0 when there is none
+    public static int fromUci(Moves moveList, String uci) {
+        int from = (uci.charAt(0) - 'a') + (uci.charAt(1) - '1') * 8;
+        int to   = (uci.charAt(2) - 'a') + (uci.charAt(3) - '1') * 8;
+
+        for (int i = 0; i < moveList.count; i++) {
+            int move = moveList.moves[i];
+            if ((move & 0x3f) == to && ((move >> 6) & 0x3f) == from) {
+                // if move has promotion
+                if (uci.length() == 5) {
+                    int promoType = getPromotionPieceType(move);
+                    char promo = uci.charAt(4);
+                    if (promo == 'n' && promoType == 0) return move;
+                    if (promo == 'b' && promoType == 1) return move;
+                    if (promo == 'r' && promoType == 2) return move;
+                    if (promo == 'q' && promoType == 3) return move;
+                    continue;
+                }
+                return move;
+            }
+        }
+        return 0;
+    }
+
     public static String toUci(int move) {
         SquareEnum from = getMoveSource(move);
         SquareEnum to = getMoveTarget(move);
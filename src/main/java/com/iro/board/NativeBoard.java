@@ -1,14 +1,27 @@
 package com.iro.board;
 
-public class NativeBoard {
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
 
-    public static final int SIDE_WHITE = 0;
-    public static final int SIDE_BLACK = 1;
+/*
+    MoveGenerator over the C++ generator through JNI.
 
-    public static final String START_POSITION =
-        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 ";
+    The C++ position is freed by destroyPosition, or by a Cleaner once the board becomes unreachable
+    if that was forgotten. Every call into the library keeps the board reachable until it returns
+    (Reference.reachabilityFence) so the Cleaner can't free the position while it is in use.
+*/
+public class NativeBoard implements MoveGenerator {
+
+    private static final Cleaner CLEANER = Cleaner.create();
 
     private long positionPtr;
+    private Cleaner.Cleanable cleanable;
+
+    // scratch list reused by parseMove so engine replies don't allocate
+    private final Moves parseMoveList = new Moves();
+
+    // state array reused by getBoard
+    private final long[] snapshotState = new long[BoardSnapshot.STATE_SIZE];
 
     // C++ Piece enum → Java PieceEnum mapping
     // C++: WHITE_PAWN=0..WHITE_KING=5, BLACK_PAWN=8..BLACK_KING=13, NO_PIECE=14
@@ -20,75 +33,207 @@ public class NativeBoard {
         null
     };
 
+    @Override
+    public String getName() {
+        return "native";
+    }
+
+    @Override
     public void createPosition() {
-        positionPtr = NativeMoveGen.createPosition();
+        adopt(NativeMoveGen.createPosition());
     }
 
+    @Override
     public void destroyPosition() {
         if (positionPtr != 0) {
-            NativeMoveGen.destroyPosition(positionPtr);
             positionPtr = 0;
+            // runs the PositionReleaser now, the Cleaner won't run it again
+            cleanable.clean();
+            cleanable = null;
         }
     }
 
+    // a new board with its own copy of this position, undo history included
+    public NativeBoard copy() {
+        NativeBoard copy = new NativeBoard();
+        try {
+            copy.adopt(NativeMoveGen.clonePosition(positionPtr));
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+        return copy;
+    }
+
+    // overwrites this position with a copy of source without allocating, see PositionPool
+    public void copyFrom(NativeBoard source) {
+        try {
+            NativeMoveGen.copyPosition(source.positionPtr, positionPtr);
+        } finally {
+            Reference.reachabilityFence(source);
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    private void adopt(long positionPtr) {
+        this.positionPtr = positionPtr;
+        cleanable = CLEANER.register(this, new PositionReleaser(positionPtr));
+    }
+
+    @Override
     public void setFen(String fen) {
-        NativeMoveGen.setFen(positionPtr, fen);
+        try {
+            NativeMoveGen.setFen(positionPtr, fen);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
     }
 
+    @Override
     public String getFen() {
-        return NativeMoveGen.getFen(positionPtr);
+        try {
+            return NativeMoveGen.getFen(positionPtr);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
     }
 
+    @Override
     public int getSide() {
-        return NativeMoveGen.getTurn(positionPtr);
+        try {
+            return NativeMoveGen.getTurn(positionPtr);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
     }
 
+    @Override
     public void generateMoves(Moves moveList) {
-        int[] raw = NativeMoveGen.generateLegalMoves(positionPtr);
-        moveList.count = raw.length;
-        System.arraycopy(raw, 0, moveList.moves, 0, raw.length);
+        try {
+            moveList.count = NativeMoveGen.generateLegalMoves(positionPtr, moveList.moves);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
     }
 
+    @Override
     public void makeMove(int move) {
-        NativeMoveGen.playMove(positionPtr, move);
+        try {
+            NativeMoveGen.playMove(positionPtr, move);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    @Override
+    public void undoMove(int move) {
+        try {
+            NativeMoveGen.undoMove(positionPtr, move);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    @Override
+    public int playUciMoves(String moves) {
+        try {
+            return NativeMoveGen.playUciMoves(positionPtr, moves);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
     }
 
+    @Override
+    public int playMoves(int[] moves, int count) {
+        try {
+            return NativeMoveGen.playMoves(positionPtr, moves, count);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    @Override
+    public long getHash() {
+        try {
+            return NativeMoveGen.getHash(positionPtr);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    @Override
     public boolean isInCheck() {
-        return NativeMoveGen.isInCheck(positionPtr);
+        try {
+            return NativeMoveGen.isInCheck(positionPtr);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
     }
 
+    @Override
     public boolean hasLegalMoves(Moves moveList) {
         return moveList.count > 0;
     }
 
+    @Override
     public PieceEnum pieceAt(int square) {
-        int cppPiece = NativeMoveGen.pieceAt(positionPtr, square);
+        int cppPiece;
+        try {
+            cppPiece = NativeMoveGen.pieceAt(positionPtr, square);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+
         if (cppPiece < 0 || cppPiece >= CPP_TO_JAVA_PIECE.length) {
             return null;
         }
         return CPP_TO_JAVA_PIECE[cppPiece];
     }
 
+    @Override
+    public void getBoard(BoardSnapshot snapshot) {
+        try {
+            NativeMoveGen.getBoard(positionPtr, snapshot.pieces, snapshotState);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+        snapshot.setState(snapshotState);
+    }
+
+    @Override
+    public long perft(int depth) {
+        try {
+            return NativeMoveGen.perft(positionPtr, depth);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    @Override
+    public long[] perftDivide(int depth) {
+        try {
+            return NativeMoveGen.perftDivide(positionPtr, depth);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    @Override
     public int parseMove(String uci) {
-        int from = (uci.charAt(0) - 'a') + (uci.charAt(1) - '1') * 8;
-        int to   = (uci.charAt(2) - 'a') + (uci.charAt(3) - '1') * 8;
-
-        int[] moves = NativeMoveGen.generateLegalMoves(positionPtr);
-        for (int move : moves) {
-            if ((move & 0x3f) == to && ((move >> 6) & 0x3f) == from) {
-                // if move has promotion
-                if (uci.length() == 5) {
-                    int promoType = Moves.getPromotionPieceType(move);
-                    char promo = uci.charAt(4);
-                    if (promo == 'n' && promoType == 0) return move;
-                    if (promo == 'b' && promoType == 1) return move;
-                    if (promo == 'r' && promoType == 2) return move;
-                    if (promo == 'q' && promoType == 3) return move;
-                    continue;
-                }
-                return move;
-            }
-        }
-        return 0;
+        generateMoves(parseMoveList);
+        return Moves.fromUci(parseMoveList, uci);
+    }
+
+    // frees the C++ position, must not reference the board or it would never become unreachable
+    private static final class PositionReleaser implements Runnable {
+        private final long positionPtr;
+
+        PositionReleaser(long positionPtr) {
+            this.positionPtr = positionPtr;
+        }
+
+        @Override
+        public void run() {
+            NativeMoveGen.destroyPosition(positionPtr);
+        }
     }
 }
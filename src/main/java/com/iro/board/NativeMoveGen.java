@@ -3,31 +3,68 @@ package com.iro.board;
 public final class NativeMoveGen {
     private NativeMoveGen() {}
 
+    // why the library couldn't be loaded, null when it was
+    private static final Throwable LOAD_ERROR;
+
     static {
-        System.loadLibrary("iro_chess_movegen");
+        Throwable error = null;
+        try {
+            System.loadLibrary("iro_chess_movegen");
+        } catch (UnsatisfiedLinkError | SecurityException e) {
+            error = e;
+        }
+        LOAD_ERROR = error;
+    }
+
+    // the native methods below throw UnsatisfiedLinkError when this is false
+    public static boolean isLoaded() {
+        return LOAD_ERROR == null;
+    }
+
+    public static String getLoadError() {
+        return LOAD_ERROR == null ? null : LOAD_ERROR.getMessage();
     }
 
     // Position lifecycle
     public static native long createPosition();
     public static native void destroyPosition(long positionPtr);
 
+    // Copies, undo history included: clonePosition allocates a new position, copyPosition overwrites
+    // an existing one
+    public static native long clonePosition(long positionPtr);
+    public static native void copyPosition(long sourcePtr, long targetPtr);
+
     // State
     public static native void setFen(long positionPtr, String fen);
     public static native String getFen(long positionPtr);
     public static native int getTurn(long positionPtr);            // 0=WHITE, 1=BLACK
     public static native int pieceAt(long positionPtr, int square); // C++ Piece enum values
 
-    // Move generation — returns raw move ints: flags[15:12] | from[11:6] | to[5:0]
-    public static native int[] generateLegalMoves(long positionPtr);
+    // one crossing for the whole board: PieceEnum ordinals (-1 empty) into mailbox[64], side, castling,
+    // en passant square and hash into state[4]
+    public static native void getBoard(long positionPtr, byte[] mailbox, long[] state);
+
+    // Move generation — writes raw move ints into moves and returns the count:
+    // flags[15:12] | from[11:6] | to[5:0]. moves must hold at least 218 entries
+    public static native int generateLegalMoves(long positionPtr, int[] moves);
 
     // Play/undo (pass the raw move int from generateLegalMoves)
     public static native void playMove(long positionPtr, int move);
     public static native void undoMove(long positionPtr, int move);
 
+    // Batched replay: plays the moves in order and stops at the first one that isn't legal. Returns its
+    // index, with every move before it played, or -1 when the whole sequence was played
+    public static native int playUciMoves(long positionPtr, String moves); // "e2e4 e7e5 g1f3"
+    public static native int playMoves(long positionPtr, int[] moves, int count);
+
     // Check detection
     public static native boolean isInCheck(long positionPtr);
 
     // Position info
     public static native long getHash(long positionPtr);
     public static native int getPly(long positionPtr);
+
+    // Perft — the whole tree is walked natively, one JNI crossing per call
+    public static native long perft(long positionPtr, int depth);
+    public static native long[] perftDivide(long positionPtr, int depth); // per root move, generateLegalMoves order
 }
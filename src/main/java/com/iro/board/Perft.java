@@ -1,9 +1,25 @@
 package com.iro.board;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
 public class Perft {
+    public static final String KIWIPETE =
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1 ";
+
     private long nodes = 0;
     private final Board board;
 
+    // one move list per remaining depth so the walk itself doesn't allocate
+    private Moves[] moveLists = new Moves[0];
+
+    // one board per fork/join worker thread, reset from a BoardState for every subtree
+    private static final ThreadLocal<Board> WORKER_BOARD = ThreadLocal.withInitial(Board::new);
+
     public Perft(Board board) {
         this.board = board;
     }
@@ -14,20 +30,32 @@ public class Perft {
             return;
         }
 
-        Moves moveList = new Moves();
-        board.generateMoves(moveList);
+        Moves moveList = moveLists[depth];
+        board.generateLegalMoves(moveList);
 
-        for (int i = 0; i < moveList.count; i++) {
-            BoardState saved = board.copyBoard();
+        // every generated move is legal, so the last ply is just the list size
+        if (depth == 1) {
+            nodes += moveList.count;
+            return;
+        }
 
-            if (!board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES)) {
-                board.takeBack(saved);
-                continue;
-            }
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
 
             perftDriver(depth - 1);
 
-            board.takeBack(saved);
+            board.unmakeMove(moveList.moves[i]);
+        }
+    }
+
+    private void ensureMoveLists(int depth) {
+        if (moveLists.length > depth) {
+            return;
+        }
+
+        moveLists = new Moves[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            moveLists[i] = new Moves();
         }
     }
 
@@ -35,19 +63,15 @@ public class Perft {
         System.out.println("\n     Performance test\n");
 
         nodes = 0;
+        ensureMoveLists(depth);
 
-        Moves moveList = new Moves();
-        board.generateMoves(moveList);
+        Moves moveList = moveLists[depth];
+        board.generateLegalMoves(moveList);
 
         long start = System.currentTimeMillis();
 
         for (int i = 0; i < moveList.count; i++) {
-            BoardState saved = board.copyBoard();
-
-            if (!board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES)) {
-                board.takeBack(saved);
-                continue;
-            }
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
 
             long before = nodes;
 
@@ -55,14 +79,9 @@ public class Perft {
 
             long moveNodes = nodes - before;
 
-            board.takeBack(saved);
+            board.unmakeMove(moveList.moves[i]);
 
-            System.out.printf("     move: %s%s%c  nodes: %d\n",
-                board.getMoveSource(moveList.moves[i]).name().toLowerCase(),
-                board.getMoveTarget(moveList.moves[i]).name().toLowerCase(),
-                board.getMovePromoted(moveList.moves[i]) != PieceEnum.P ?
-                    board.getMovePromoted(moveList.moves[i]).name().toLowerCase().charAt(0) : ' ',
-                moveNodes);
+            printMoveNodes(moveList.moves[i], moveNodes);
         }
 
         long end = System.currentTimeMillis();
@@ -71,4 +90,381 @@ public class Perft {
         System.out.printf("    Nodes: %d\n", nodes);
         System.out.printf("     Time: %d ms\n\n", end - start);
     }
+
+    public void perftTest(int depth, PerftTable table) {
+        System.out.println("\n     Hashed performance test\n");
+
+        nodes = 0;
+        ensureMoveLists(depth);
+
+        Moves moveList = moveLists[depth];
+        board.generateLegalMoves(moveList);
+
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+
+            long moveNodes = hashedPerftDriver(depth - 1, table);
+
+            board.unmakeMove(moveList.moves[i]);
+
+            printMoveNodes(moveList.moves[i], moveNodes);
+            nodes += moveNodes;
+        }
+
+        long end = System.currentTimeMillis();
+
+        System.out.printf("\n    Depth: %d\n", depth);
+        System.out.printf("    Nodes: %d\n", nodes);
+        System.out.printf("     Time: %d ms\n", end - start);
+        printHashStats(table);
+    }
+
+    private long hashedPerftDriver(int depth, PerftTable table) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        // leaves are bulk-counted, so only interior nodes are worth caching
+        long hash = 0;
+        if (depth >= 2) {
+            hash = board.getHash();
+
+            long cached = table.probe(hash, depth);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+
+        Moves moveList = moveLists[depth];
+        board.generateLegalMoves(moveList);
+
+        if (depth == 1) {
+            return moveList.count;
+        }
+
+        long subtreeNodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+
+            subtreeNodes += hashedPerftDriver(depth - 1, table);
+
+            board.unmakeMove(moveList.moves[i]);
+        }
+
+        table.store(hash, depth, subtreeNodes);
+
+        return subtreeNodes;
+    }
+
+    public static void perftTest(MoveGenerator board, int depth) {
+        System.out.printf("\n     Performance test (%s move generator)\n\n", board.getName());
+
+        Moves moveList = new Moves();
+        board.generateMoves(moveList);
+
+        long start = System.currentTimeMillis();
+
+        long[] divide = board.perftDivide(depth);
+
+        long end = System.currentTimeMillis();
+
+        long nodes = 0;
+
+        for (int i = 0; i < divide.length; i++) {
+            System.out.printf("     move: %-5s  nodes: %d\n", Moves.toUci(moveList.moves[i]), divide[i]);
+            nodes += divide[i];
+        }
+
+        System.out.printf("\n    Depth: %d\n", depth);
+        System.out.printf("    Nodes: %d\n", nodes);
+        System.out.printf("     Time: %d ms\n\n", end - start);
+    }
+
+    public static void perftTest(MoveGenerator board, int depth, PerftTable table) {
+        System.out.printf("\n     Hashed performance test (%s move generator)\n\n", board.getName());
+
+        // one move list per remaining depth, reused across the whole walk
+        Moves[] moveLists = new Moves[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            moveLists[i] = new Moves();
+        }
+
+        Moves moveList = moveLists[depth];
+        board.generateMoves(moveList);
+
+        long start = System.currentTimeMillis();
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i]);
+
+            long moveNodes = hashedPerftDriver(board, depth - 1, moveLists, table);
+
+            board.undoMove(moveList.moves[i]);
+
+            System.out.printf("     move: %-5s  nodes: %d\n", Moves.toUci(moveList.moves[i]), moveNodes);
+            nodes += moveNodes;
+        }
+
+        long end = System.currentTimeMillis();
+
+        System.out.printf("\n    Depth: %d\n", depth);
+        System.out.printf("    Nodes: %d\n", nodes);
+        System.out.printf("     Time: %d ms\n", end - start);
+        printHashStats(table);
+    }
+
+    private static long hashedPerftDriver(MoveGenerator board, int depth, Moves[] moveLists, PerftTable table) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        // leaves are bulk-counted, so only interior nodes are worth caching
+        long hash = 0;
+        if (depth >= 2) {
+            hash = board.getHash();
+
+            long cached = table.probe(hash, depth);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+
+        Moves moveList = moveLists[depth];
+        board.generateMoves(moveList);
+
+        if (depth == 1) {
+            return moveList.count;
+        }
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i]);
+            nodes += hashedPerftDriver(board, depth - 1, moveLists, table);
+            board.undoMove(moveList.moves[i]);
+        }
+
+        table.store(hash, depth, nodes);
+
+        return nodes;
+    }
+
+    // one task per root move, each on its own copy of the position taken from a PositionPool
+    public static void perftTestParallel(NativeBoard board, int depth, int parallelism) {
+        System.out.println("\n     Native parallel performance test\n");
+
+        Moves moveList = new Moves();
+        board.generateMoves(moveList);
+
+        long start = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long[] divide = new long[moveList.count];
+
+        try (PositionPool positions = new PositionPool(parallelism)) {
+            List<Future<Long>> tasks = new ArrayList<>(moveList.count);
+
+            for (int i = 0; i < moveList.count; i++) {
+                int move = moveList.moves[i];
+
+                tasks.add(pool.submit(() -> {
+                    NativeBoard worker = positions.acquire(board);
+                    try {
+                        worker.makeMove(move);
+                        return worker.perft(depth - 1);
+                    } finally {
+                        positions.release(worker);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < divide.length; i++) {
+                divide[i] = tasks.get(i).get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            pool.shutdown();
+        }
+
+        long end = System.nanoTime();
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            System.out.printf("     move: %-5s  nodes: %d\n", Moves.toUci(moveList.moves[i]), divide[i]);
+            nodes += divide[i];
+        }
+
+        System.out.printf("\n    Depth: %d\n", depth);
+        System.out.printf("  Threads: %d\n", parallelism);
+        System.out.printf("    Nodes: %d\n", nodes);
+        System.out.printf("     Time: %d ms\n", (end - start) / 1_000_000);
+        System.out.printf("      NPS: %d\n\n", nodesPerSecond(nodes, end - start));
+    }
+
+    public void perftTestParallel(int depth, int parallelism) {
+        System.out.println("\n     Parallel performance test\n");
+
+        Moves moveList = new Moves();
+        board.generateLegalMoves(moveList);
+
+        long start = System.nanoTime();
+
+        long[] divide = perftDivideParallel(depth, parallelism);
+
+        long end = System.nanoTime();
+
+        long total = 0;
+
+        for (int i = 0; i < moveList.count; i++) {
+            printMoveNodes(moveList.moves[i], divide[i]);
+            total += divide[i];
+        }
+
+        long elapsedMs = (end - start) / 1_000_000;
+
+        System.out.printf("\n    Depth: %d\n", depth);
+        System.out.printf("  Threads: %d\n", parallelism);
+        System.out.printf("    Nodes: %d\n", total);
+        System.out.printf("     Time: %d ms\n", elapsedMs);
+        System.out.printf("      NPS: %d\n\n", nodesPerSecond(total, end - start));
+    }
+
+    // runs the same parallel perft with 1, 2, 4, ... worker threads up to the core count
+    public void perftScaling(int depth) {
+        System.out.println("\n     Perft scaling\n");
+        System.out.println("     threads        nodes      time ms            nps   speedup");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        long baseNps = 0;
+
+        for (int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)) {
+            long start = System.nanoTime();
+
+            long total = 0;
+            for (long moveNodes : perftDivideParallel(depth, parallelism)) {
+                total += moveNodes;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            long nps = nodesPerSecond(total, elapsed);
+
+            if (parallelism == 1) {
+                baseNps = nps;
+            }
+
+            System.out.printf("     %7d %12d %12d %14d %8.2fx\n", parallelism, total, elapsed / 1_000_000,
+                nps, baseNps == 0 ? 0.0 : (double) nps / baseNps);
+
+            if (parallelism == cores) {
+                break;
+            }
+        }
+
+        System.out.println();
+    }
+
+    // returns the node count of every root move in generateLegalMoves order
+    public long[] perftDivideParallel(int depth, int parallelism) {
+        Moves moveList = new Moves();
+        board.generateLegalMoves(moveList);
+
+        BoardState root = board.copyBoard();
+        List<SubtreeTask> tasks = new ArrayList<>(moveList.count);
+
+        for (int i = 0; i < moveList.count; i++) {
+            tasks.add(new SubtreeTask(root, moveList.moves[i], depth - 1, true));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            for (SubtreeTask task : tasks) {
+                pool.execute(task);
+            }
+
+            long[] divide = new long[moveList.count];
+            for (int i = 0; i < divide.length; i++) {
+                divide[i] = tasks.get(i).join();
+            }
+
+            return divide;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void printMoveNodes(int move, long moveNodes) {
+        System.out.printf("     move: %s%s%c  nodes: %d\n",
+            board.getMoveSource(move).name().toLowerCase(),
+            board.getMoveTarget(move).name().toLowerCase(),
+            board.getMovePromoted(move) != PieceEnum.P ?
+                board.getMovePromoted(move).name().toLowerCase().charAt(0) : ' ',
+            moveNodes);
+    }
+
+    private static void printHashStats(PerftTable table) {
+        System.out.printf("     Hash: %d MB, %d probes, %d hits (%.1f%%), %d stores\n\n",
+            table.sizeInBytes() / (1024 * 1024), table.getProbes(), table.getHits(),
+            table.getHitRate() * 100, table.getStores());
+    }
+
+    private static long nodesPerSecond(long nodes, long elapsedNanos) {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    // Counts the subtree below a single move. Root tasks split once more into one task per
+    // reply so that the first two plies are spread across the pool.
+    private static final class SubtreeTask extends RecursiveTask<Long> {
+        private final BoardState state;
+        private final int move;
+        private final int depth;
+        private final boolean split;
+
+        SubtreeTask(BoardState state, int move, int depth, boolean split) {
+            this.state = state;
+            this.move = move;
+            this.depth = depth;
+            this.split = split;
+        }
+
+        @Override
+        protected Long compute() {
+            Board worker = WORKER_BOARD.get();
+            worker.takeBack(state);
+
+            worker.makeMove(move, MoveTypeEnum.ALL_MOVES);
+
+            if (split && depth >= 2) {
+                BoardState child = worker.copyBoard();
+
+                Moves moveList = new Moves();
+                worker.generateLegalMoves(moveList);
+
+                List<SubtreeTask> replies = new ArrayList<>(moveList.count);
+                for (int i = 0; i < moveList.count; i++) {
+                    replies.add(new SubtreeTask(child, moveList.moves[i], depth - 1, false));
+                }
+
+                long total = 0;
+                for (SubtreeTask reply : ForkJoinTask.invokeAll(replies)) {
+                    total += reply.join();
+                }
+
+                return total;
+            }
+
+            Perft perft = new Perft(worker);
+            perft.ensureMoveLists(depth);
+            perft.perftDriver(depth);
+
+            return perft.nodes;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package com.iro.board;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Fixed-size transposition table for perft: (hash, depth) -> node count.
+
+    Each bucket holds two entries of two longs, a check word and a data word:
+
+        data  = nodes << 8 | depth
+        check = hash ^ data
+
+    An entry only matches when check ^ data gives back the probed hash, so a torn write from another
+    thread reads as a miss instead of a wrong count and no locking is needed. The first entry of a
+    bucket keeps the deepest result (depth-preferred), the second one is always replaced.
+*/
+public class PerftTable {
+    private static final int BUCKET_LONGS = 4;
+    private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+    // the most buckets, a power of two, whose longs still fit in an int-indexed array
+    static final long MAX_BUCKETS = Long.highestOneBit(Integer.MAX_VALUE / BUCKET_LONGS);
+
+    private final AtomicLongArray entries;
+    private final long bucketMask;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    public PerftTable(int megabytes) {
+        long buckets = bucketCount(megabytes);
+
+        entries = new AtomicLongArray((int) (buckets * BUCKET_LONGS));
+        bucketMask = buckets - 1;
+    }
+
+    // the largest power of two number of buckets that fits in megabytes, at least one and at most MAX_BUCKETS
+    static long bucketCount(int megabytes) {
+        long buckets = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / BUCKET_BYTES));
+        return Math.min(buckets, MAX_BUCKETS);
+    }
+
+    // returns the stored node count, or -1 when (hash, depth) is not in the table
+    public long probe(long hash, int depth) {
+        probes.increment();
+
+        int index = bucketIndex(hash);
+
+        for (int slot = index; slot < index + BUCKET_LONGS; slot += 2) {
+            long data = entries.getOpaque(slot + 1);
+
+            if ((entries.getOpaque(slot) ^ data) == hash && (int) (data & 0xff) == depth) {
+                hits.increment();
+                return data >>> 8;
+            }
+        }
+
+        return -1;
+    }
+
+    public void store(long hash, int depth, long nodes) {
+        stores.increment();
+
+        int index = bucketIndex(hash);
+        long data = nodes << 8 | depth;
+
+        // keep the deeper subtree in the first entry, everything else goes to the second one
+        long deepest = entries.getOpaque(index + 1);
+        int slot = depth >= (int) (deepest & 0xff) ? index : index + 2;
+
+        entries.setOpaque(slot, hash ^ data);
+        entries.setOpaque(slot + 1, data);
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.setOpaque(i, 0L);
+        }
+
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    public long sizeInBytes() {
+        return (long) entries.length() * Long.BYTES;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public double getHitRate() {
+        long probeCount = getProbes();
+        return probeCount == 0 ? 0.0 : (double) getHits() / probeCount;
+    }
+
+    private int bucketIndex(long hash) {
+        return (int) (hash & bucketMask) * BUCKET_LONGS;
+    }
+}
@@ -0,0 +1,57 @@
+package com.iro.board;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Thread-safe pool of NativeBoards for fanning out from a position across worker threads.
+
+    acquire hands out a board holding a copy of the source position, undo history included, reusing
+    a released board when there is one so the C++ side doesn't allocate. Up to maxIdle released
+    boards are kept, the rest are destroyed. A board that is never released is freed by
+    NativeBoard's Cleaner once it becomes unreachable.
+
+    The source position must not change while it is being copied; reading it from several threads
+    at once is fine.
+*/
+public class PositionPool implements AutoCloseable {
+    private final ConcurrentLinkedDeque<NativeBoard> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+
+    public PositionPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public NativeBoard acquire(NativeBoard source) {
+        NativeBoard board = idle.pollFirst();
+
+        if (board == null) {
+            return source.copy();
+        }
+
+        idleCount.decrementAndGet();
+        board.copyFrom(source);
+        return board;
+    }
+
+    public void release(NativeBoard board) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            // most recently used first, it is the most likely to still be in cache
+            idle.offerFirst(board);
+        } else {
+            idleCount.decrementAndGet();
+            board.destroyPosition();
+        }
+    }
+
+    // destroys the idle boards, boards still handed out are left to their owners
+    @Override
+    public void close() {
+        NativeBoard board;
+        while ((board = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            board.destroyPosition();
+        }
+    }
+}
@@ -8,6 +8,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class UciClient {
     private final String enginePath;
@@ -15,6 +19,28 @@ public class UciClient {
     private BufferedReader reader;
     private BufferedWriter writer;
 
+    // searches run one at a time on this thread so the caller never blocks on the engine
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<String> pendingSearch;
+    // set while the engine has a go it has not answered yet
+    private boolean searching;
+
+    private volatile UciInfoListener infoListener;
+
+    /*
+        What the engine is told before each search: a root position plus the moves played on top of
+        it. The root moves forward to a capture or pawn move once its FEN is shorter than the move
+        list. Positions before such a move can't repeat and the halfmove clock restarts at it, so
+        nothing the engine needs is lost; castling resets neither, so the root never moves to it.
+    */
+    private String rootFen;
+    private final Moves sessionMoves = new Moves();
+    private int sessionMovesLength;
+
     public UciClient() {
         String os = getOperatingSystem();
         String projectRoot = getProjectRoot();
@@ -51,7 +77,7 @@ public class UciClient {
         }
     }
 
-    public void sendCommand(String command) throws IOException {
+    public synchronized void sendCommand(String command) throws IOException {
         writer.write(command);
         writer.newLine();
         writer.flush();
@@ -61,39 +87,175 @@ public class UciClient {
         return reader.readLine();
     }
 
+    public void setInfoListener(UciInfoListener infoListener) {
+        this.infoListener = infoListener;
+    }
+
+    // reads up to the bestmove line, handing every info line on the way to the listener
     public String readBestMove() throws IOException {
         String bestMove;
         do {
             bestMove = reader.readLine();
+
+            UciInfoListener listener = infoListener;
+            if (listener != null && bestMove != null && bestMove.startsWith("info ")) {
+                UciInfo info = UciInfoParser.parse(bestMove);
+                if (info != null) {
+                    listener.onInfo(info);
+                }
+            }
         } while(bestMove != null && !bestMove.startsWith("bestmove"));
 
         return bestMove;
     }
 
-    public String getBestMove(Moves historyMoveList, int depth) {
-        StringBuilder positionCommand = new StringBuilder("position startpos");
+    public void newGame() {
+        newGame(null);
+    }
 
-        if (historyMoveList.count > 0) {
-            positionCommand.append(" moves");
+    // starts a new session from fen (null for the start position), the only point where the engine's hash is cleared
+    public synchronized void newGame(String fen) {
+        rootFen = fen;
+        sessionMoves.count = 0;
+        sessionMovesLength = 0;
 
-            for (int i = 0; i < historyMoveList.count; i++) {
-                positionCommand.append(" ");
-                positionCommand.append(Moves.toUci(historyMoveList.moves[i]));
+        // queued behind any running search so the replies stay in order
+        searchExecutor.execute(() -> {
+            try {
+                sendCommand("ucinewgame");
+                sendCommand("isready");
+
+                String line;
+                while ((line = readLine()) != null) {
+                    if (line.equals("readyok")) break;
+                }
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
             }
+        });
+    }
+
+    // resetFen is the FEN after the move when it was a capture or pawn move, null otherwise
+    public synchronized void movePlayed(int move, String resetFen) {
+        int moveLength = 1 + Moves.toUci(move).length();
+
+        if (resetFen != null &&
+            "fen ".length() + resetFen.length() < rootLength() + " moves".length() + sessionMovesLength + moveLength) {
+            rootFen = resetFen;
+            sessionMoves.count = 0;
+            sessionMovesLength = 0;
+            return;
         }
 
-        try {
-            sendCommand(positionCommand.toString());
-            sendCommand("go depth " + depth);
+        sessionMoves.add(move);
+        sessionMovesLength += moveLength;
+    }
+
+    /*
+        Starts a search from the current session position on the search thread and returns right
+        away. The future completes with the engine's move in UCI notation ("e2e4", "e7e8q"), or
+        null when the engine has no move to play.
+    */
+    public synchronized CompletableFuture<String> getBestMoveAsync(int depth) {
+        String positionCommand = sessionCommand();
+
+        CompletableFuture<String> search = new CompletableFuture<>();
+        searchExecutor.execute(() -> {
+            try {
+                // sent under the lock so cancelSearch either drops the search before go or stops it after
+                synchronized (this) {
+                    if (search.isDone()) {
+                        return;
+                    }
+
+                    sendCommand(positionCommand);
+                    sendCommand("go depth " + depth);
+                    searching = true;
+                }
+
+                String bestMove = readBestMove();
+                synchronized (this) {
+                    searching = false;
+                }
+                search.complete(parseBestMove(bestMove));
+            } catch (IOException e) {
+                synchronized (this) {
+                    searching = false;
+                }
+                search.completeExceptionally(new UncheckedIOException(e));
+            }
+        });
+
+        pendingSearch = search;
+        return search;
+    }
 
-            return readBestMove();
+    // asks the engine to finish the current search now, the pending future completes with its best move so far
+    public void stop() {
+        try {
+            sendCommand("stop");
         } catch (IOException e) {
             System.out.println(e.getMessage());
+        }
+    }
+
+    /*
+        Drops the pending search. A search that has not sent go yet never does; one that has is
+        told to stop and the search thread still reads up to its bestmove line, so the next search
+        starts on a clean stream.
+    */
+    public synchronized void cancelSearch() {
+        if (pendingSearch != null && !pendingSearch.isDone()) {
+            pendingSearch.cancel(false);
+        }
+        if (searching) {
+            stop();
+        }
+
+        pendingSearch = null;
+    }
+
+    private int rootLength() {
+        return rootFen == null ? "startpos".length() : "fen ".length() + rootFen.length();
+    }
+
+    private String sessionCommand() {
+        StringBuilder positionCommand = new StringBuilder(
+            "position ".length() + rootLength() + " moves".length() + sessionMovesLength);
+
+        positionCommand.append("position ");
+        positionCommand.append(rootFen == null ? "startpos" : "fen " + rootFen);
+
+        if (sessionMoves.count > 0) {
+            positionCommand.append(" moves");
+
+            for (int i = 0; i < sessionMoves.count; i++) {
+                positionCommand.append(" ");
+                positionCommand.append(Moves.toUci(sessionMoves.moves[i]));
+            }
+        }
+
+        return positionCommand.toString();
+    }
+
+    // "bestmove e2e4 ponder e7e5" -> "e2e4"
+    private String parseBestMove(String bestMoveLine) {
+        if (bestMoveLine == null) {
+            return null;
+        }
+
+        String[] tokens = bestMoveLine.split(" ");
+        if (tokens.length < 2 || tokens[1].equals("(none)") || tokens[1].equals("0000")) {
             return null;
         }
+
+        return tokens[1];
     }
 
     public void close() {
+        cancelSearch();
+        searchExecutor.shutdownNow();
+
         try {
             if (process != null && process.isAlive()) {
                 process.destroy();
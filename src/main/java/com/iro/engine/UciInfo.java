@@ -0,0 +1,17 @@
+package com.iro.engine;
+
+/*
+    One "info" line from the engine. Fields the line didn't carry are UNKNOWN, a missing score is
+    NO_SCORE and a missing pv is null.
+
+    score is from the point of view of the side to move: centipawns, or moves to mate when mate is
+    set (negative when the side to move gets mated).
+*/
+public record UciInfo(int depth, int score, boolean mate, long nodes, long nps, int hashfull, String pv) {
+    public static final int UNKNOWN = -1;
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    public boolean hasScore() {
+        return score != NO_SCORE;
+    }
+}
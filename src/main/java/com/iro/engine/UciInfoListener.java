@@ -0,0 +1,7 @@
+package com.iro.engine;
+
+// called on the search thread for every info line the engine prints while searching
+@FunctionalInterface
+public interface UciInfoListener {
+    void onInfo(UciInfo info);
+}
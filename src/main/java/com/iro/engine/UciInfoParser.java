@@ -0,0 +1,104 @@
+package com.iro.engine;
+
+/*
+    Parses "info" lines in place by scanning token boundaries, numbers are read straight out of the
+    line without splitting it. The only allocations are the UciInfo itself and the pv substring.
+
+        info depth 12 seldepth 18 score cp 23 nodes 1234 nps 5678 hashfull 12 time 217 pv e2e4 e7e5
+*/
+public final class UciInfoParser {
+    private UciInfoParser() {
+    }
+
+    // returns null for lines that aren't search info, e.g. "info string ..." or "bestmove ..."
+    public static UciInfo parse(String line) {
+        if (!line.startsWith("info ")) {
+            return null;
+        }
+
+        int depth = UciInfo.UNKNOWN;
+        int score = UciInfo.NO_SCORE;
+        boolean mate = false;
+        long nodes = UciInfo.UNKNOWN;
+        long nps = UciInfo.UNKNOWN;
+        int hashfull = UciInfo.UNKNOWN;
+        String pv = null;
+
+        int length = line.length();
+        int index = skipSpaces(line, 4);
+
+        try {
+            while (index < length) {
+                int end = tokenEnd(line, index);
+
+                if (matches(line, index, end, "string")) {
+                    // free text up to the end of the line
+                    break;
+                }
+
+                if (matches(line, index, end, "pv")) {
+                    // the principal variation always runs to the end of the line
+                    int pvStart = skipSpaces(line, end);
+                    pv = pvStart < length ? line.substring(pvStart).trim() : null;
+                    break;
+                }
+
+                if (matches(line, index, end, "score")) {
+                    index = skipSpaces(line, end);
+                    end = tokenEnd(line, index);
+                    mate = matches(line, index, end, "mate");
+
+                    index = skipSpaces(line, end);
+                    end = tokenEnd(line, index);
+                    score = Integer.parseInt(line, index, end, 10);
+                } else if (matches(line, index, end, "depth")) {
+                    index = skipSpaces(line, end);
+                    end = tokenEnd(line, index);
+                    depth = Integer.parseInt(line, index, end, 10);
+                } else if (matches(line, index, end, "nodes")) {
+                    index = skipSpaces(line, end);
+                    end = tokenEnd(line, index);
+                    nodes = Long.parseLong(line, index, end, 10);
+                } else if (matches(line, index, end, "nps")) {
+                    index = skipSpaces(line, end);
+                    end = tokenEnd(line, index);
+                    nps = Long.parseLong(line, index, end, 10);
+                } else if (matches(line, index, end, "hashfull")) {
+                    index = skipSpaces(line, end);
+                    end = tokenEnd(line, index);
+                    hashfull = Integer.parseInt(line, index, end, 10);
+                }
+                // anything else (seldepth, time, multipv, lowerbound, ...) is skipped token by token
+
+                index = skipSpaces(line, end);
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // malformed value, drop the whole line
+            return null;
+        }
+
+        if (depth == UciInfo.UNKNOWN && score == UciInfo.NO_SCORE && nodes == UciInfo.UNKNOWN && pv == null) {
+            return null;
+        }
+
+        return new UciInfo(depth, score, mate, nodes, nps, hashfull, pv);
+    }
+
+    private static boolean matches(String line, int start, int end, String keyword) {
+        return end - start == keyword.length() && line.startsWith(keyword, start);
+    }
+
+    private static int tokenEnd(String line, int index) {
+        while (index < line.length() && line.charAt(index) != ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipSpaces(String line, int index) {
+        while (index < line.length() && line.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+}
@@ -1,18 +1,21 @@
 package com.iro.gui;
 
 import com.iro.board.Board;
+import com.iro.board.BoardSnapshot;
 import com.iro.board.CapturedPieces;
 import com.iro.board.Moves;
-import com.iro.board.NativeBoard;
+import com.iro.board.MoveGenerator;
 import com.iro.board.PieceEnum;
 import com.iro.board.SquareEnum;
 import com.iro.engine.UciClient;
+import com.iro.engine.UciInfo;
 import com.iro.piece.BlackBishop;
 import com.iro.piece.BlackKnight;
 import com.iro.piece.BlackQueen;
 import com.iro.piece.BlackRook;
 import com.iro.piece.Piece;
 import com.iro.piece.PieceFactory;
+import com.iro.piece.Sprites;
 import com.iro.piece.WhiteBishop;
 import com.iro.piece.WhiteKnight;
 import com.iro.piece.WhiteQueen;
@@ -20,16 +23,33 @@ import com.iro.piece.WhiteRook;
 
 import javax.swing.JButton;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class GamePanel extends JPanel implements Runnable {
+/*
+    The game board and side panel.
+
+    Nothing runs between events: mouse input, the engine finishing a search and engine info lines
+    each update the game on the event dispatch thread and repaint only what changed, a dragged
+    piece's old and new squares, the info panel, or the whole panel after a move. launchGame can
+    instead redraw the whole panel on a Swing timer at a capped frame rate.
+*/
+public class GamePanel extends JPanel {
 
     public static final int WIDTH = 1100;
     public static final int HEIGHT = 800;
@@ -38,11 +58,30 @@ public class GamePanel extends JPanel implements Runnable {
     public final int MAX_ROW = 8;
     public static final int SQUARE_SIZE = 100;
     public static final int HALF_SQUARE_SIZE = SQUARE_SIZE / 2;
-
-    public final int FPS = 60;
-    public Thread gameThread;
-    private final NativeBoard board = new NativeBoard();
-    public Mouse mouse = new Mouse();
+    private static final int BOARD_SIZE = 8 * SQUARE_SIZE;
+
+    // the engine info panel drawn by drawEngineInfo
+    private static final int INFO_X = 820;
+    private static final int INFO_Y = 470;
+    private static final int INFO_HEIGHT = 90;
+
+    // paint resources, shared by every frame
+    private static final Color LIGHT_SQUARE = new Color(210, 165, 125);
+    private static final Color DARK_SQUARE = new Color(175, 115, 70);
+    private static final Color TARGET_HIGHLIGHT = new Color(0, 0, 0, 60);
+    private static final Font INFO_FONT = new Font("Arial", Font.PLAIN, 16);
+    private static final Font PROMOTION_FONT = new Font("Book Antique", Font.PLAIN, 40);
+    private static final Font RESULT_FONT = new Font("Arial", Font.PLAIN, 90);
+
+    // the 64 squares, drawn once by drawBoard and blitted on every paint after that
+    private BufferedImage boardLayer;
+
+    // redraws the whole panel at a fixed rate, null when repainting on events only
+    private Timer frameTimer;
+    private final MoveGenerator board;
+    // the position on screen, refreshed after every move
+    private final BoardSnapshot snapshot = new BoardSnapshot();
+    public Mouse mouse = new Mouse(this::update);
 
     public static ArrayList<Piece> simPieces = new ArrayList<Piece>();
     public ArrayList<Piece> promoPieces = new ArrayList<Piece>();
@@ -50,6 +89,13 @@ public class GamePanel extends JPanel implements Runnable {
     public Piece activePiece;
 
     public static Moves moveList = new Moves();
+
+    // simPieces by square, built by indexPieces and kept in sync by applyMove
+    private final Piece[] piecesBySquare = new Piece[64];
+    // for moveList: the target squares of each source square, and the move for a source * 64 + target
+    // pair whose target bit is set (one of the four for a promotion)
+    private final long[] legalTargets = new long[64];
+    private final int[] movesBySquares = new int[64 * 64];
     public static Moves historyMoveList = new Moves();
 
     public SquareEnum promotionSource;
@@ -58,11 +104,19 @@ public class GamePanel extends JPanel implements Runnable {
     public boolean stalemate;
 
     private boolean playAgainstComputer;
+    private boolean engineMovesFirst;
     private int depth;
     public UciClient uciClient;
+    // engine search in flight, picked up by the game loop once it completes
+    private CompletableFuture<String> engineMove;
+    // latest search info from the engine and the side it was searching for, written by the search thread
+    private volatile UciInfo engineInfo;
+    private volatile int engineSide;
     public static boolean boardFlipped = false;
 
-    public GamePanel(String opponent, int depth) {
+    // board is a created position set to the start position, the panel destroys it in cleanup
+    public GamePanel(String opponent, int depth, MoveGenerator board) {
+        this.board = board;
         playAgainstComputer = !opponent.equals("human");
         this.depth = depth;
         boardFlipped = opponent.equals("white");
@@ -79,32 +133,57 @@ public class GamePanel extends JPanel implements Runnable {
             for (Piece p : simPieces) {
                 p.setPosition(p.getSquare());
             }
+            requestRepaint();
         });
         add(flipButton);
 
-        board.createPosition();
-        board.setFen(NativeBoard.START_POSITION);
-
         if (playAgainstComputer) {
             uciClient = new UciClient();
+            uciClient.setInfoListener(info -> {
+                engineInfo = info;
+                requestRepaint(INFO_X, INFO_Y, WIDTH - INFO_X, INFO_HEIGHT);
+            });
             try {
                 uciClient.start();
+                uciClient.newGame();
             } catch (IOException e) {
                 System.out.println(e.getMessage());
             }
 
-            if (opponent.equals("white")) {
-                computerMakeMove();
-            }
+            // the first search waits for launchGame, once the pieces and indexes below are built
+            engineMovesFirst = opponent.equals("white");
         }
 
         board.generateMoves(moveList);
+        indexMoves();
         copyPieces(board, simPieces);
+        indexPieces();
+    }
+
+    // Called on the event dispatch thread once the panel is showing. fps > 0 redraws the whole panel
+    // that many times a second, 0 repaints on events only
+    public void launchGame(int fps) {
+        if (fps > 0) {
+            frameTimer = new Timer(1000 / fps, e -> repaint());
+            frameTimer.start();
+        }
+
+        if (engineMovesFirst) {
+            computerMakeMove();
+        }
+    }
+
+    // repaints now when driven by events, the frame timer picks it up otherwise
+    private void requestRepaint() {
+        if (frameTimer == null) {
+            repaint();
+        }
     }
 
-    public void launchGame() {
-        gameThread = new Thread(this);
-        gameThread.start();
+    private void requestRepaint(int x, int y, int width, int height) {
+        if (frameTimer == null) {
+            repaint(x, y, width, height);
+        }
     }
 
     public void copyPieces(Board board, ArrayList<Piece> target) {
@@ -124,65 +203,196 @@ public class GamePanel extends JPanel implements Runnable {
         }
     }
 
-    public void copyPieces(NativeBoard board, ArrayList<Piece> target) {
+    public void copyPieces(MoveGenerator board, ArrayList<Piece> target) {
         target.clear();
         PieceFactory pieceFactory = new PieceFactory();
 
+        // one call for the whole board rather than one per square
+        board.getBoard(snapshot);
+
         for (int square = 0; square < 64; square++) {
-            PieceEnum piece = board.pieceAt(square);
+            PieceEnum piece = snapshot.pieceAt(square);
             if (piece != null) {
                 target.add(pieceFactory.createPiece(piece, SquareEnum.intToSquare(square)));
             }
         }
     }
 
+    private void indexPieces() {
+        Arrays.fill(piecesBySquare, null);
+        for (Piece piece : simPieces) {
+            piecesBySquare[piece.getSquare().ordinal()] = piece;
+        }
+    }
+
+    private void indexMoves() {
+        Arrays.fill(legalTargets, 0);
+        for (int i = 0; i < moveList.count; i++) {
+            int move = moveList.moves[i];
+            int source = Moves.getMoveSource(move).ordinal();
+            int target = Moves.getMoveTarget(move).ordinal();
+
+            legalTargets[source] |= 1L << target;
+            movesBySquares[source * 64 + target] = move;
+        }
+    }
+
+    // the board square under a point on the panel, or NO_SQUARE when the point is off the board
+    private SquareEnum squareAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= BOARD_SIZE || y >= BOARD_SIZE) {
+            return SquareEnum.NO_SQUARE;
+        }
+
+        int col = x / SQUARE_SIZE;
+        int row = y / SQUARE_SIZE;
+        return boardFlipped ? SquareEnum.fromScreen(7 - col, 7 - row) : SquareEnum.fromScreen(col, row);
+    }
+
+    // Moves the displayed pieces the way move changes the board, touching at most four squares instead
+    // of rebuilding every piece. Called before the move is made, while snapshot still holds the position
+    private void applyMove(int move) {
+        int source = Moves.getMoveSource(move).ordinal();
+        int target = Moves.getMoveTarget(move).ordinal();
+
+        if (Moves.isEnPassant(move)) {
+            // the captured pawn is on the target file and the source rank
+            removePiece((source & ~7) | (target & 7));
+        } else if (Moves.isCapture(move)) {
+            removePiece(target);
+        }
+
+        Piece piece = piecesBySquare[source];
+        piecesBySquare[source] = null;
+
+        if (Moves.isPromotion(move)) {
+            // N, B, R, Q follow the pawn in PieceEnum order for either colour
+            PieceEnum promoted = PieceEnum.values()[Moves.getPromotionPieceType(move) + 1 +
+                (snapshot.side == MoveGenerator.SIDE_BLACK ? 6 : 0)];
+            simPieces.remove(piece);
+            piece = new PieceFactory().createPiece(promoted, SquareEnum.intToSquare(target));
+            simPieces.add(piece);
+        } else {
+            piece.setPosition(SquareEnum.intToSquare(target));
+        }
+        piecesBySquare[target] = piece;
+
+        if (Moves.isCastling(move)) {
+            // the rook hops over the king, from the h file to the f file or from the a file to the d file
+            boolean kingSide = (target & 7) == 6;
+            int rookSource = (target & ~7) | (kingSide ? 7 : 0);
+            int rookTarget = kingSide ? target - 1 : target + 1;
+
+            Piece rook = piecesBySquare[rookSource];
+            piecesBySquare[rookSource] = null;
+            rook.setPosition(SquareEnum.intToSquare(rookTarget));
+            piecesBySquare[rookTarget] = rook;
+        }
+    }
+
+    private void removePiece(int square) {
+        simPieces.remove(piecesBySquare[square]);
+        piecesBySquare[square] = null;
+    }
+
     private void playMove(int move) {
         if (Moves.isCapture(move)) {
             PieceEnum captured;
             if (Moves.isEnPassant(move)) {
                 // En passant captured pawn is on the same file as target, same rank as source
-                captured = board.getSide() == NativeBoard.SIDE_WHITE ? PieceEnum.p : PieceEnum.P;
+                captured = snapshot.side == MoveGenerator.SIDE_WHITE ? PieceEnum.p : PieceEnum.P;
             } else {
                 SquareEnum target = Moves.getMoveTarget(move);
-                captured = board.pieceAt(target.ordinal());
+                captured = snapshot.pieceAt(target.ordinal());
             }
 
             if (captured != null) {
-                capturedPieces.add(board.getSide(), captured);
+                capturedPieces.add(snapshot.side, captured);
             }
         }
 
+        // captures and pawn moves reset the halfmove clock, so the engine session may restart from the
+        // FEN after them without losing the 50-move count. The FEN always has a clock of 0, so castling,
+        // which doesn't reset it, keeps the session root where it is
+        PieceEnum moved = snapshot.pieceAt(Moves.getMoveSource(move).ordinal());
+        boolean irreversible = Moves.isCapture(move) || moved == PieceEnum.P || moved == PieceEnum.p;
+
+        applyMove(move);
         board.makeMove(move);
-        historyMoveList.moves[historyMoveList.count++] = move;
+        historyMoveList.add(move);
+
+        if (uciClient != null) {
+            uciClient.movePlayed(move, irreversible ? board.getFen() : null);
+        }
     }
 
     public void computerMakeMove() {
-        String bestMove = uciClient.getBestMove(historyMoveList, depth);
-        System.out.println(bestMove);
-        int engineMove = board.parseMove(bestMove.substring(9));
-        playMove(engineMove);
+        engineSide = board.getSide();
+        engineMove = uciClient.getBestMoveAsync(depth);
+        // the move is played on the event dispatch thread once the search completes
+        engineMove.whenComplete((move, error) -> SwingUtilities.invokeLater(this::update));
+    }
+
+    private void playEngineMove() {
+        String bestMove;
+        try {
+            bestMove = engineMove.join();
+        } catch (CancellationException | CompletionException e) {
+            System.out.println(e.getMessage());
+            bestMove = null;
+        }
+        engineMove = null;
+
+        if (bestMove == null) {
+            return;
+        }
+
+        System.out.println("bestmove " + bestMove);
+        // the engine may answer with a move that is not legal here, e.g. after a position mismatch
+        int move = board.parseMove(bestMove);
+        if (move == 0) {
+            System.out.println("Ignoring illegal bestmove " + bestMove);
+            return;
+        }
+        playMove(move);
+        refreshPosition();
     }
 
-    @Override
-    public void run() {
-        double drawInterval = (double) 1000000000 / FPS;
-        double delta = 0;
-        long lastTime = System.nanoTime();
-        long currentTime;
-
-        while(gameThread != null) {
-            currentTime = System.nanoTime();
-            delta += (currentTime - lastTime) / drawInterval;
-            lastTime = currentTime;
-            if (delta >= 1) {
-                update();
-                repaint();
-                delta--;
+    // regenerates the legal moves and the snapshot after a move, then checks for the end of the game
+    private void refreshPosition() {
+        board.generateMoves(moveList);
+        indexMoves();
+        // the pieces were already moved by applyMove
+        board.getBoard(snapshot);
+        requestRepaint();
+
+        if (!board.hasLegalMoves(moveList)) {
+            if (board.isInCheck()) {
+                gameOver = true;
+            } else {
+                stalemate = true;
             }
         }
     }
 
+    // hands the turn to the engine unless the game is already over
+    private void afterPlayerMove() {
+        refreshPosition();
+
+        if (playAgainstComputer && !gameOver && !stalemate) {
+            computerMakeMove();
+        }
+    }
+
+    // called on the event dispatch thread after mouse input and when an engine search completes
     private void update() {
+        // the board is locked while the engine thinks
+        if (engineMove != null) {
+            if (engineMove.isDone()) {
+                playEngineMove();
+            }
+            return;
+        }
+
         if (promotionSource != null) {
             promoting();
             return;
@@ -190,14 +400,12 @@ public class GamePanel extends JPanel implements Runnable {
 
         if (mouse.pressed) {
             if (activePiece == null) {
-                for (Piece piece : simPieces) {
-                    if (piece.getSquare() ==
-                            SquareEnum.fromScreen(
-                                boardFlipped ? 7 - mouse.x / SQUARE_SIZE : mouse.x / SQUARE_SIZE,
-                                boardFlipped ? 7 - mouse.y / SQUARE_SIZE : mouse.y / SQUARE_SIZE)) {
-                        activePiece = piece;
-                        activePiece.setPreSquare(piece.getSquare());
-                    }
+                SquareEnum square = squareAt(mouse.x, mouse.y);
+                if (square != SquareEnum.NO_SQUARE && piecesBySquare[square.ordinal()] != null) {
+                    activePiece = piecesBySquare[square.ordinal()];
+                    activePiece.setPreSquare(square);
+                    // shows its legal targets
+                    requestRepaint(0, 0, BOARD_SIZE, BOARD_SIZE);
                 }
             } else {
                 simulate();
@@ -206,57 +414,45 @@ public class GamePanel extends JPanel implements Runnable {
 
         if (!mouse.pressed && activePiece != null) {
             boolean legalMove = false;
-            for (int i = 0; i < moveList.count; i++) {
-                SquareEnum sourceSquare = Moves.getMoveSource(moveList.moves[i]);
-                SquareEnum targetSquare = Moves.getMoveTarget(moveList.moves[i]);
-
-                if (activePiece.getPreSquare() == sourceSquare &&
-                    activePiece.getSquare() == targetSquare) {
-
-                    if (Moves.isPromotion(moveList.moves[i])) {
-                        promotionSource = sourceSquare;
-                        promotionTarget = targetSquare;
-
-                        promoPieces.clear();
-                        if (board.getSide() == NativeBoard.SIDE_WHITE) {
-                            promoPieces.add(new WhiteRook(9, 2));
-                            promoPieces.add(new WhiteKnight(9, 3));
-                            promoPieces.add(new WhiteBishop(9, 4));
-                            promoPieces.add(new WhiteQueen(9, 5));
-                        } else {
-                            promoPieces.add(new BlackRook(9, 2));
-                            promoPieces.add(new BlackKnight(9, 3));
-                            promoPieces.add(new BlackBishop(9, 4));
-                            promoPieces.add(new BlackQueen(9, 5));
-                        }
-
-                        return;
-                    }
-
-                    playMove(moveList.moves[i]);
-                    legalMove = true;
-
-                    if (playAgainstComputer) {
-                        computerMakeMove();
+            int source = activePiece.getPreSquare().ordinal();
+            // the square the centre of the piece was dropped on
+            SquareEnum target = squareAt(activePiece.x + HALF_SQUARE_SIZE, activePiece.y + HALF_SQUARE_SIZE);
+
+            if (target != SquareEnum.NO_SQUARE && (legalTargets[source] & 1L << target.ordinal()) != 0) {
+                int move = movesBySquares[source * 64 + target.ordinal()];
+
+                if (Moves.isPromotion(move)) {
+                    promotionSource = activePiece.getPreSquare();
+                    promotionTarget = target;
+
+                    promoPieces.clear();
+                    requestRepaint();
+                    if (board.getSide() == MoveGenerator.SIDE_WHITE) {
+                        promoPieces.add(new WhiteRook(9, 2));
+                        promoPieces.add(new WhiteKnight(9, 3));
+                        promoPieces.add(new WhiteBishop(9, 4));
+                        promoPieces.add(new WhiteQueen(9, 5));
+                    } else {
+                        promoPieces.add(new BlackRook(9, 2));
+                        promoPieces.add(new BlackKnight(9, 3));
+                        promoPieces.add(new BlackBishop(9, 4));
+                        promoPieces.add(new BlackQueen(9, 5));
                     }
 
-                    board.generateMoves(moveList);
-                    copyPieces(board, simPieces);
+                    return;
+                }
 
-                    if (!board.hasLegalMoves(moveList)) {
-                        if (board.isInCheck()) {
-                            gameOver = true;
-                        } else {
-                            stalemate = true;
-                        }
-                    }
+                playMove(move);
+                legalMove = true;
 
-                    break;
-                }
+                afterPlayerMove();
             }
 
-            if (!legalMove && promotionSource == null) {
+            if (!legalMove) {
+                repaintSquareAt(activePiece.x, activePiece.y);
                 activePiece.setPosition(activePiece.getPreSquare());
+                // takes the legal target highlights down with it
+                requestRepaint(0, 0, BOARD_SIZE, BOARD_SIZE);
             }
 
             activePiece = null;
@@ -264,9 +460,16 @@ public class GamePanel extends JPanel implements Runnable {
     }
 
     private void simulate() {
+        repaintSquareAt(activePiece.x, activePiece.y);
         activePiece.x = mouse.x - HALF_SQUARE_SIZE;
         activePiece.y = mouse.y - HALF_SQUARE_SIZE;
         activePiece.setSquare(activePiece.x, activePiece.y);
+        repaintSquareAt(activePiece.x, activePiece.y);
+    }
+
+    // the square-sized area a piece drawn at x, y covers
+    private void repaintSquareAt(int x, int y) {
+        requestRepaint(x, y, SQUARE_SIZE, SQUARE_SIZE);
     }
 
     private void promoting() {
@@ -285,16 +488,11 @@ public class GamePanel extends JPanel implements Runnable {
 
                             playMove(move);
 
-                            if (playAgainstComputer) {
-                                computerMakeMove();
-                            }
-
-                            board.generateMoves(moveList);
-                            copyPieces(board, simPieces);
-
                             promotionSource = null;
                             promotionTarget = null;
                             activePiece = null;
+
+                            afterPlayerMove();
                             break;
                         }
                     }
@@ -322,51 +520,120 @@ public class GamePanel extends JPanel implements Runnable {
     }
 
     public void cleanup() {
-        board.destroyPosition();
-
         if (uciClient != null) {
             uciClient.close();
             uciClient = null;
         }
+        engineMove = null;
 
-        if (gameThread != null) {
-            gameThread = null;
+        if (frameTimer != null) {
+            frameTimer.stop();
         }
+
+        board.destroyPosition();
     }
 
     private void drawCapturedPieces(Graphics2D graphics2d, int side, int startX, int startY) {
-        int size = SQUARE_SIZE / 2;
-        PieceFactory pieceFactory = new PieceFactory();
+        int size = HALF_SQUARE_SIZE;
 
         for (int i = 0; i < capturedPieces.count()[side]; i++) {
             int x = startX + (i % 8) * (size + 5);
             int y = startY + (i / 8) * (size + 5);
-            Piece p = pieceFactory.createPiece(capturedPieces.pieces()[side][i], SquareEnum.A1);
-            graphics2d.drawImage(p.getImage(), x, y, size, size, null);
+            graphics2d.drawImage(Sprites.getSmall(capturedPieces.pieces()[side][i]), x, y, null);
         }
     }
 
-    public void drawBoard(Graphics2D graphics2d) {
-        int c = 0;
-
-        for (int i = 0; i < MAX_ROW; i++) {
-            for (int j = 0; j < MAX_COL; j++) {
-                if (c == 0) {
-                    graphics2d.setColor(new Color(210, 165, 125));
-                    c = 1;
-                } else {
-                    graphics2d.setColor(new Color(175, 115, 70 ));
-                    c = 0;
-                }
+    private void drawEngineInfo(Graphics2D graphics2d, int x, int y) {
+        UciInfo info = engineInfo;
+        if (info == null) {
+            return;
+        }
 
-                graphics2d.fillRect(j * SQUARE_SIZE, i * SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE);
-            }
+        // the engine scores from its own side, the bar and the text show white's point of view
+        int whiteScore = engineSide == MoveGenerator.SIDE_WHITE ? info.score() : -info.score();
 
-            if (c == 0) {
-                c = 1;
+        // evaluation bar, white fills from the left
+        if (info.hasScore()) {
+            double whiteShare;
+            if (info.mate()) {
+                whiteShare = whiteScore > 0 ? 1.0 : 0.0;
             } else {
-                c = 0;
+                whiteShare = 1.0 / (1.0 + Math.pow(10.0, -whiteScore / 400.0));
             }
+
+            int barWidth = 240;
+            graphics2d.setColor(Color.DARK_GRAY);
+            graphics2d.fillRect(x, y, barWidth, 12);
+            graphics2d.setColor(Color.WHITE);
+            graphics2d.fillRect(x, y, (int) (barWidth * whiteShare), 12);
+        }
+
+        graphics2d.setFont(INFO_FONT);
+        graphics2d.setColor(Color.LIGHT_GRAY);
+
+        String score;
+        if (!info.hasScore()) {
+            score = "-";
+        } else if (info.mate()) {
+            // #3 when white mates in 3, #-3 when black does
+            score = "#" + whiteScore;
+        } else {
+            score = String.format("%+.2f", whiteScore / 100.0);
+        }
+
+        graphics2d.drawString("Depth " + (info.depth() == UciInfo.UNKNOWN ? "-" : info.depth()) +
+            "   Eval " + score, x, y + 34);
+        if (info.nps() != UciInfo.UNKNOWN) {
+            graphics2d.drawString(String.format("%,d nps", info.nps()), x, y + 56);
+        }
+        if (info.pv() != null) {
+            graphics2d.drawString(info.pv().length() > 28 ? info.pv().substring(0, 28) + "..." : info.pv(),
+                x, y + 78);
+        }
+    }
+
+    // The squares look the same from either side, a1 and h8 are both dark, so flipping the board
+    // keeps the layer; the panel isn't resizable, so it is only rendered once
+    public void drawBoard(Graphics2D graphics2d) {
+        if (boardLayer == null) {
+            boardLayer = renderBoardLayer();
+        }
+        graphics2d.drawImage(boardLayer, 0, 0, null);
+    }
+
+    private BufferedImage renderBoardLayer() {
+        int width = MAX_COL * SQUARE_SIZE;
+        int height = MAX_ROW * SQUARE_SIZE;
+
+        // compatible with the screen when there is one, so the blit needs no conversion
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        BufferedImage layer = configuration != null ?
+            configuration.createCompatibleImage(width, height, Transparency.OPAQUE) :
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D layerGraphics = layer.createGraphics();
+        for (int row = 0; row < MAX_ROW; row++) {
+            for (int col = 0; col < MAX_COL; col++) {
+                layerGraphics.setColor((row + col) % 2 == 0 ? LIGHT_SQUARE : DARK_SQUARE);
+                layerGraphics.fillRect(col * SQUARE_SIZE, row * SQUARE_SIZE, SQUARE_SIZE, SQUARE_SIZE);
+            }
+        }
+        layerGraphics.dispose();
+
+        return layer;
+    }
+
+    // a dot on every square the piece on source can move to
+    private void drawLegalTargets(Graphics2D graphics2d, SquareEnum source) {
+        int size = SQUARE_SIZE / 3;
+        graphics2d.setColor(TARGET_HIGHLIGHT);
+
+        for (long targets = legalTargets[source.ordinal()]; targets != 0; targets &= targets - 1) {
+            SquareEnum target = SquareEnum.intToSquare(Long.numberOfTrailingZeros(targets));
+            int col = boardFlipped ? 7 - target.col() : target.col();
+            int row = boardFlipped ? 7 - target.row() : target.row();
+            graphics2d.fillOval(col * SQUARE_SIZE + (SQUARE_SIZE - size) / 2, row * SQUARE_SIZE + (SQUARE_SIZE - size) / 2,
+                size, size);
         }
     }
 
@@ -376,15 +643,21 @@ public class GamePanel extends JPanel implements Runnable {
 
         drawBoard(graphics2d);
 
+        if (activePiece != null && promotionSource == null) {
+            drawLegalTargets(graphics2d, activePiece.getPreSquare());
+        }
+
         for (Piece p : simPieces) {
             p.draw(graphics2d);
         }
 
-        int topSide = boardFlipped ? NativeBoard.SIDE_BLACK : NativeBoard.SIDE_WHITE;
-        int bottomSide = boardFlipped ? NativeBoard.SIDE_WHITE : NativeBoard.SIDE_BLACK;
+        int topSide = boardFlipped ? MoveGenerator.SIDE_BLACK : MoveGenerator.SIDE_WHITE;
+        int bottomSide = boardFlipped ? MoveGenerator.SIDE_WHITE : MoveGenerator.SIDE_BLACK;
         drawCapturedPieces(graphics2d, topSide, 820, 30);
         drawCapturedPieces(graphics2d, bottomSide, 820, HEIGHT - 90);
 
+        drawEngineInfo(graphics2d, INFO_X, INFO_Y);
+
 //        if (activePiece != null) {
 //            if (canMove) {
 //                if(isIllegal(activePiece) || opponentCanCaptureKing()) {
@@ -408,18 +681,17 @@ public class GamePanel extends JPanel implements Runnable {
 //        }
 
         graphics2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        graphics2d.setFont(new Font("Book Antique", Font.PLAIN, 40));
+        graphics2d.setFont(PROMOTION_FONT);
         graphics2d.setColor(Color.WHITE);
 
         if (promotionSource != null) {
             graphics2d.drawString("Promoting to:", 840, 150);
             for (Piece piece : promoPieces) {
-                graphics2d.drawImage(piece.getImage(), piece.getX(), piece.getY(),
-                    SQUARE_SIZE, SQUARE_SIZE, null);
+                graphics2d.drawImage(piece.getImage(), piece.getX(), piece.getY(), null);
             }
         }
 //        else {
-//            if (board.getSide() == NativeBoard.SIDE_WHITE) {
+//            if (board.getSide() == MoveGenerator.SIDE_WHITE) {
 //                graphics2d.drawString("White's turn", 840, 550);
 //                if(checkingPiece != null && checkingPiece.color == BLACK) {
 //                    graphics2d.setColor(Color.red);
@@ -437,14 +709,14 @@ public class GamePanel extends JPanel implements Runnable {
 //        }
 
         if (gameOver) {
-            String s = board.getSide() == NativeBoard.SIDE_BLACK ? "White won!" : "Black won!";
-            graphics2d.setFont(new Font("Arial", Font.PLAIN, 90));
+            String s = board.getSide() == MoveGenerator.SIDE_BLACK ? "White won!" : "Black won!";
+            graphics2d.setFont(RESULT_FONT);
             graphics2d.setColor(Color.green);
             graphics2d.drawString(s, 200, 420);
         }
 
         if (stalemate) {
-            graphics2d.setFont(new Font("Arial", Font.PLAIN, 90));
+            graphics2d.setFont(RESULT_FONT);
             graphics2d.setColor(Color.lightGray);
             graphics2d.drawString("Stalemate", 200, 420);
         }
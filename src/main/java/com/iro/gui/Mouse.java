@@ -8,20 +8,32 @@ public class Mouse extends MouseAdapter {
     public int y;
     public boolean pressed;
 
+    // run on the event dispatch thread after every press, release and drag
+    private final Runnable listener;
+
+    public Mouse(Runnable listener) {
+        this.listener = listener;
+    }
+
     @Override
     public void mousePressed(MouseEvent e) {
+        x = e.getX();
+        y = e.getY();
         pressed = true;
+        listener.run();
     }
 
     @Override
     public void mouseReleased(MouseEvent e) {
         pressed = false;
+        listener.run();
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
         x = e.getX();
         y = e.getY();
+        listener.run();
     }
 
     @Override
@@ -8,13 +8,13 @@ public class BlackBishop extends Piece {
         super(square);
         piece = PieceEnum.b;
 
-        image = getImage("/piece/b-bishop");
+        image = Sprites.get(piece);
     }
 
     public BlackBishop(int col, int row) {
         super(col, row);
         piece = PieceEnum.b;
 
-        image = getImage("/piece/b-bishop");
+        image = Sprites.get(piece);
     }
 }
@@ -8,6 +8,6 @@ public class BlackKing extends Piece {
         super(square);
         piece = PieceEnum.k;
 
-        image = getImage("/piece/b-king");
+        image = Sprites.get(piece);
     }
 }
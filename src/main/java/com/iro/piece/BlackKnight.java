@@ -6,15 +6,15 @@ import com.iro.board.SquareEnum;
 public class BlackKnight extends Piece {
     public BlackKnight(SquareEnum square) {
         super(square);
-        piece = PieceEnum.k;
+        piece = PieceEnum.n;
 
-        image = getImage("/piece/b-knight");
+        image = Sprites.get(piece);
     }
 
     public BlackKnight(int col, int row) {
         super(col, row);
-        piece = PieceEnum.k;
+        piece = PieceEnum.n;
 
-        image = getImage("/piece/b-knight");
+        image = Sprites.get(piece);
     }
 }
@@ -8,6 +8,6 @@ public class BlackPawn extends Piece {
         super(square);
         piece = PieceEnum.p;
 
-        image = getImage("/piece/b-pawn");
+        image = Sprites.get(piece);
     }
 }
@@ -8,13 +8,13 @@ public class BlackQueen extends Piece {
         super(square);
         piece = PieceEnum.q;
 
-        image = getImage("/piece/b-queen");
+        image = Sprites.get(piece);
     }
 
     public BlackQueen(int col, int row) {
         super(col, row);
         piece = PieceEnum.q;
 
-        image = getImage("/piece/b-queen");
+        image = Sprites.get(piece);
     }
 }
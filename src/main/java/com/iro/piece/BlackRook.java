@@ -8,13 +8,13 @@ public class BlackRook extends Piece {
         super(square);
         piece = PieceEnum.r;
 
-        image = getImage("/piece/b-rook");
+        image = Sprites.get(piece);
     }
 
     public BlackRook(int col, int row) {
         super(col, row);
         piece = PieceEnum.r;
 
-        image = getImage("/piece/b-rook");
+        image = Sprites.get(piece);
     }
 }
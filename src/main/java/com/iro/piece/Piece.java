@@ -5,14 +5,13 @@ import com.iro.board.PieceEnum;
 import com.iro.board.SquareEnum;
 import com.iro.gui.GamePanel;
 
-import javax.imageio.ImageIO;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.util.Objects;
 
 public class Piece {
 
     protected PieceEnum piece;
+    // shared with every other piece of the same kind, see Sprites
     protected BufferedImage image;
     private SquareEnum square;
     public int x;
@@ -36,16 +35,6 @@ public class Piece {
         preSquare = null;
     }
 
-    public BufferedImage getImage(String imagePath) {
-        BufferedImage image = null;
-        try {
-            image = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream(imagePath + ".png")));
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        }
-        return image;
-    }
-
     public BufferedImage getImage() {
         return image;
     }
@@ -139,6 +128,7 @@ public class Piece {
     }
 
     public void draw(Graphics2D graphics2d) {
-        graphics2d.drawImage(image, x, y, GamePanel.SQUARE_SIZE, GamePanel.SQUARE_SIZE, null);
+        // the sprite is already square-sized
+        graphics2d.drawImage(image, x, y, null);
     }
 }
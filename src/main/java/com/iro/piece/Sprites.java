@@ -0,0 +1,86 @@
+package com.iro.piece;
+
+import com.iro.board.PieceEnum;
+import com.iro.gui.GamePanel;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.Objects;
+
+/*
+    Process-wide piece images, shared by every Piece.
+
+    Each of the 12 PNGs is decoded once, on first use, and rendered into an image compatible with
+    the screen at the two sizes the GUI draws: a full square and the half square used for captured
+    pieces. Drawing them needs no scaling or pixel format conversion, and nothing is read from disk
+    after startup.
+*/
+public final class Sprites {
+    private Sprites() {}
+
+    // resource names in PieceEnum order
+    private static final String[] PATHS = {
+        "w-pawn", "w-knight", "w-bishop", "w-rook", "w-queen", "w-king",
+        "b-pawn", "b-knight", "b-bishop", "b-rook", "b-queen", "b-king"
+    };
+
+    // loaded by the first call to get or getSmall
+    private static final class Atlas {
+        static final BufferedImage[] FULL = new BufferedImage[PATHS.length];
+        static final BufferedImage[] SMALL = new BufferedImage[PATHS.length];
+
+        static {
+            GraphicsConfiguration configuration = GraphicsEnvironment.isHeadless() ? null :
+                GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+
+            for (int i = 0; i < PATHS.length; i++) {
+                BufferedImage source = read("/piece/" + PATHS[i] + ".png");
+                FULL[i] = render(configuration, source, GamePanel.SQUARE_SIZE);
+                SMALL[i] = render(configuration, source, GamePanel.HALF_SQUARE_SIZE);
+            }
+        }
+    }
+
+    // the piece at the size of a board square
+    public static BufferedImage get(PieceEnum piece) {
+        return Atlas.FULL[piece.ordinal()];
+    }
+
+    // the piece at half the size of a board square
+    public static BufferedImage getSmall(PieceEnum piece) {
+        return Atlas.SMALL[piece.ordinal()];
+    }
+
+    private static BufferedImage read(String path) {
+        try (InputStream in = Objects.requireNonNull(Sprites.class.getResourceAsStream(path), path)) {
+            return ImageIO.read(in);
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    private static BufferedImage render(GraphicsConfiguration configuration, BufferedImage source, int size) {
+        BufferedImage image = configuration != null ?
+            configuration.createCompatibleImage(size, size, Transparency.TRANSLUCENT) :
+            new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+
+        if (source == null) {
+            return image;
+        }
+
+        Graphics2D graphics2d = image.createGraphics();
+        graphics2d.setComposite(AlphaComposite.Src);
+        graphics2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics2d.drawImage(source, 0, 0, size, size, null);
+        graphics2d.dispose();
+        return image;
+    }
+}
@@ -8,13 +8,13 @@ public class WhiteBishop extends Piece {
         super(square);
         piece = PieceEnum.B;
 
-        image = getImage("/piece/w-bishop");
+        image = Sprites.get(piece);
     }
 
     public WhiteBishop(int col, int row) {
         super(col, row);
         piece = PieceEnum.B;
 
-        image = getImage("/piece/w-bishop");
+        image = Sprites.get(piece);
     }
 }
@@ -8,6 +8,6 @@ public class WhiteKing extends Piece {
         super(square);
         piece = PieceEnum.K;
 
-        image = getImage("/piece/w-king");
+        image = Sprites.get(piece);
     }
 }
@@ -8,13 +8,13 @@ public class WhiteKnight extends Piece {
         super(square);
         piece = PieceEnum.N;
 
-        image = getImage("/piece/w-knight");
+        image = Sprites.get(piece);
     }
 
     public WhiteKnight(int col, int row) {
         super(col, row);
         piece = PieceEnum.N;
 
-        image = getImage("/piece/w-knight");
+        image = Sprites.get(piece);
     }
 }
@@ -8,6 +8,6 @@ public class WhitePawn extends Piece {
         super(square);
         piece = PieceEnum.P;
 
-        image = getImage("/piece/w-pawn");
+        image = Sprites.get(piece);
     }
 }
@@ -8,13 +8,13 @@ public class WhiteQueen extends Piece {
         super(square);
         piece = PieceEnum.Q;
 
-        image = getImage("/piece/w-queen");
+        image = Sprites.get(piece);
     }
 
     public WhiteQueen(int col, int row) {
         super(col, row);
         piece = PieceEnum.Q;
 
-        image = getImage("/piece/w-queen");
+        image = Sprites.get(piece);
     }
 }
@@ -8,13 +8,13 @@ public class WhiteRook extends Piece {
         super(square);
         piece = PieceEnum.R;
 
-        image = getImage("/piece/w-rook");
+        image = Sprites.get(piece);
     }
 
     public WhiteRook(int col, int row) {
         super(col, row);
         piece = PieceEnum.R;
 
-        image = getImage("/piece/w-rook");
+        image = Sprites.get(piece);
     }
 }
@@ -0,0 +1,59 @@
+package com.iro.board;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoardHashTest {
+    // castling, en passant and promotions all change the hash on the way
+    private static final String[] POSITIONS = {
+        Board.START_POSITION,
+        Perft.KIWIPETE,
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    @Test
+    void incrementalHashMatchesAFullRecomputeAlongAPerftWalk() {
+        for (String fen : POSITIONS) {
+            Board board = new Board();
+            board.parseFen(fen);
+            walk(board, new Board(), 3, fen);
+        }
+    }
+
+    @Test
+    void unmakeMoveRestoresTheHash() {
+        Board board = new Board();
+        board.parseFen(Perft.KIWIPETE);
+        long hash = board.getHash();
+
+        Moves moveList = new Moves();
+        board.generateLegalMoves(moveList);
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+            board.unmakeMove(moveList.moves[i]);
+            assertEquals(hash, board.getHash());
+        }
+    }
+
+    // every node is checked against generateHash and against the same position parsed from its FEN
+    private static void walk(Board board, Board parsed, int depth, String fen) {
+        assertEquals(board.generateHash(), board.getHash(), fen);
+        parsed.parseFen(board.getFen());
+        assertEquals(parsed.getHash(), board.getHash(), board.getFen());
+
+        if (depth == 0) {
+            return;
+        }
+
+        Moves moveList = new Moves();
+        board.generateLegalMoves(moveList);
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+            walk(board, parsed, depth - 1, fen);
+            board.unmakeMove(moveList.moves[i]);
+        }
+    }
+}
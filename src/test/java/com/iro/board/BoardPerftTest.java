@@ -0,0 +1,129 @@
+package com.iro.board;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoardPerftTest {
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    // Positions aimed at the pin and check masks, checked against the pseudo-legal perft
+    private static final String[] EDGE_CASES = {
+        // en passant that would uncover a rook check along the rank
+        "8/8/8/KPp4r/8/8/8/4k3 w - c6 0 1",
+        // en passant by a pawn pinned on the diagonal, and one that captures the checking pawn
+        "6B1/8/8/8/2pP4/1k6/8/5K2 b - d3 0 1",
+        "8/8/8/2k5/3Pp3/8/8/4K3 b - d3 0 1",
+        // castling through and out of attacked squares
+        "r3k2r/8/8/8/8/8/6b1/R3K2R w KQkq - 0 1",
+        "r3k2r/8/8/8/4q3/8/8/R3K2R w KQkq - 0 1",
+        // double check, only king moves
+        "4k3/8/8/8/8/5n2/8/r3K3 w - - 0 1",
+        // promotions with and without captures for both sides
+        "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"
+    };
+
+    // published counts, https://www.chessprogramming.org/Perft_Results
+    @Test
+    void startPositionMatchesPublishedCounts() {
+        assertCounts(Board.START_POSITION, 20, 400, 8902, 197281);
+    }
+
+    @Test
+    void kiwipeteMatchesPublishedCounts() {
+        assertCounts(Perft.KIWIPETE, 48, 2039, 97862, 4085603);
+    }
+
+    @Test
+    void position3MatchesPublishedCounts() {
+        assertCounts(POSITION_3, 14, 191, 2812, 43238, 674624);
+    }
+
+    @Test
+    void position4MatchesPublishedCounts() {
+        assertCounts(POSITION_4, 6, 264, 9467, 422333);
+    }
+
+    @Test
+    void position5MatchesPublishedCounts() {
+        assertCounts(POSITION_5, 44, 1486, 62379, 2103487);
+    }
+
+    @Test
+    void legalGeneratorMatchesPseudoLegalPerft() {
+        String[] positions = {Board.START_POSITION, Perft.KIWIPETE, POSITION_3, POSITION_4, POSITION_5};
+
+        for (String fen : positions) {
+            assertEquals(pseudoLegalPerft(fen, 3), legalPerft(fen, 3), fen);
+        }
+        for (String fen : EDGE_CASES) {
+            assertEquals(pseudoLegalPerft(fen, 4), legalPerft(fen, 4), fen);
+        }
+    }
+
+    // expected[i] is the node count at depth i + 1
+    private static void assertCounts(String fen, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], legalPerft(fen, depth), fen + " depth " + depth);
+        }
+    }
+
+    private static long legalPerft(String fen, int depth) {
+        Board board = new Board();
+        board.parseFen(fen);
+        return legalPerft(board, depth, moveLists(depth));
+    }
+
+    private static long pseudoLegalPerft(String fen, int depth) {
+        Board board = new Board();
+        board.parseFen(fen);
+        return pseudoLegalPerft(board, depth, moveLists(depth));
+    }
+
+    // bulk counted: the legal moves at the last ply are counted, not made
+    private static long legalPerft(Board board, int depth, Moves[] moveLists) {
+        Moves moveList = moveLists[depth];
+        board.generateLegalMoves(moveList);
+
+        if (depth == 1) {
+            return moveList.count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moveList.count; i++) {
+            board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES);
+            nodes += legalPerft(board, depth - 1, moveLists);
+            board.unmakeMove(moveList.moves[i]);
+        }
+        return nodes;
+    }
+
+    // every pseudo-legal move is made, makeMove rejects and takes back the ones that leave the king in check
+    private static long pseudoLegalPerft(Board board, int depth, Moves[] moveLists) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        Moves moveList = moveLists[depth];
+        board.generateMoves(moveList);
+
+        long nodes = 0;
+        for (int i = 0; i < moveList.count; i++) {
+            if (board.makeMove(moveList.moves[i], MoveTypeEnum.ALL_MOVES)) {
+                nodes += pseudoLegalPerft(board, depth - 1, moveLists);
+                board.unmakeMove(moveList.moves[i]);
+            }
+        }
+        return nodes;
+    }
+
+    private static Moves[] moveLists(int depth) {
+        Moves[] moveLists = new Moves[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            moveLists[i] = new Moves();
+        }
+        return moveLists;
+    }
+}
@@ -0,0 +1,73 @@
+package com.iro.board;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerftTableTest {
+    private static final long HASH = 0x9e3779b97f4a7c15L;
+
+    @Test
+    void bucketCountIsThePowerOfTwoThatFits() {
+        // 32-byte buckets
+        assertEquals(32768, PerftTable.bucketCount(1));
+        assertEquals(65536, PerftTable.bucketCount(3));
+        assertEquals(1, PerftTable.bucketCount(0));
+    }
+
+    @Test
+    void bucketCountIsCappedSoTheEntriesFitAnArray() {
+        assertEquals(1L << 28, PerftTable.MAX_BUCKETS);
+        assertEquals(PerftTable.MAX_BUCKETS, PerftTable.bucketCount(16384));
+        assertEquals(PerftTable.MAX_BUCKETS, PerftTable.bucketCount(Integer.MAX_VALUE));
+        assertTrue(PerftTable.MAX_BUCKETS * 4 <= Integer.MAX_VALUE);
+    }
+
+    @Test
+    void sizeInBytesMatchesTheRequestedSize() {
+        assertEquals(1024 * 1024, new PerftTable(1).sizeInBytes());
+    }
+
+    @Test
+    void storedCountIsProbedBackForTheSameHashAndDepth() {
+        PerftTable table = new PerftTable(1);
+        table.store(HASH, 3, 12345);
+        table.store(HASH + 1, 6, 1L << 50);
+
+        assertEquals(12345, table.probe(HASH, 3));
+        assertEquals(1L << 50, table.probe(HASH + 1, 6));
+        assertEquals(-1, table.probe(HASH, 4));
+        assertEquals(-1, table.probe(HASH + 2, 3));
+
+        assertEquals(2, table.getStores());
+        assertEquals(4, table.getProbes());
+        assertEquals(2, table.getHits());
+        assertEquals(0.5, table.getHitRate());
+    }
+
+    @Test
+    void deeperEntryStaysAndTheOtherOneIsReplaced() {
+        // a single bucket, every hash lands in it
+        PerftTable table = new PerftTable(0);
+        table.store(HASH, 5, 100);
+        table.store(HASH + 1, 2, 200);
+        table.store(HASH + 2, 3, 300);
+
+        assertEquals(100, table.probe(HASH, 5));
+        assertEquals(-1, table.probe(HASH + 1, 2));
+        assertEquals(300, table.probe(HASH + 2, 3));
+    }
+
+    @Test
+    void clearEmptiesTheTableAndTheCounters() {
+        PerftTable table = new PerftTable(1);
+        table.store(HASH, 3, 12345);
+        table.probe(HASH, 3);
+        table.clear();
+
+        assertEquals(0, table.getStores());
+        assertEquals(0, table.getHits());
+        assertEquals(-1, table.probe(HASH, 3));
+    }
+}